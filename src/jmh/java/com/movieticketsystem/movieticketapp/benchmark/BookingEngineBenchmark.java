@@ -0,0 +1,111 @@
+package com.movieticketsystem.movieticketapp.benchmark;
+
+import com.movieticketsystem.movieticketapp.MovieticketappApplication;
+import com.movieticketsystem.movieticketapp.model.Movie;
+import com.movieticketsystem.movieticketapp.model.Seat;
+import com.movieticketsystem.movieticketapp.model.ShowTime;
+import com.movieticketsystem.movieticketapp.model.Ticket;
+import com.movieticketsystem.movieticketapp.repository.MovieRepository;
+import com.movieticketsystem.movieticketapp.repository.ShowTimeRepository;
+import com.movieticketsystem.movieticketapp.service.BookingService;
+import com.movieticketsystem.movieticketapp.service.SeatBulkGenerator;
+import com.movieticketsystem.movieticketapp.service.SeatManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Booking engines on one hot showtime against embedded H2: the CAS path (request threads claim seats in
+ * SeatManager and each persist their own transaction) versus the per-showtime actor (one writer, one transaction
+ * per drained batch). All threads book distinct seats of the same showtime; every iteration starts on a fresh
+ * showtime in a hall of {@link #hallSeats} seats, which has to outlast one iteration (the run fails if it sells out).
+ * Reports throughput and the latency distribution (see the p0.99 line of the sample-time result), e.g.
+ * {@code mvn -Pjmh verify -DskipTests -Djmh.args="BookingEngine -t 32"}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(16)
+@Fork(1)
+public class BookingEngineBenchmark {
+
+    @Param({"cas", "actor"})
+    String engine;
+
+    @Param("60000")
+    int hallSeats;
+
+    static final int THEATER = 1;
+
+    ConfigurableApplicationContext context;
+    BookingService bookingService;
+    ShowTimeRepository showTimeRepository;
+    SeatManager seatManager;
+    Movie movie;
+
+    Integer showTimeId;
+    List<Seat> seats;
+    final AtomicInteger next = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    public void startApplication() {
+        context = new SpringApplicationBuilder(MovieticketappApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--app.load-demo-data=false", "--logging.level.root=WARN", "--app.booking.engine=" + engine);
+        bookingService = context.getBean(BookingService.class);
+        showTimeRepository = context.getBean(ShowTimeRepository.class);
+        seatManager = context.getBean(SeatManager.class);
+        movie = context.getBean(MovieRepository.class)
+                .save(new Movie("Benchmark Movie", "Benchmark", 100, new BigDecimal("100000.0")));
+        seats = context.getBean(SeatBulkGenerator.class).generateSeats(THEATER, 'A', 'T', hallSeats / 20); // 20 rows
+    }
+
+    @Setup(Level.Iteration)
+    public void createShowTime() {
+        ShowTime showTime = showTimeRepository.save(new ShowTime(movie, LocalDateTime.now().plusDays(1), THEATER,
+                hallSeats, hallSeats));
+        showTimeId = showTime.getShowTimeID();
+        seatManager.loadShowTime(showTimeId, THEATER, new int[0]);
+        next.set(0);
+    }
+
+    @TearDown(Level.Trial)
+    public void stopApplication() {
+        context.close();
+    }
+
+    @Benchmark
+    public Ticket bookSeat() {
+        int index = next.getAndIncrement();
+        if (index >= seats.size()) {
+            throw new IllegalStateException("Hall sold out during the iteration; raise -p hallSeats");
+        }
+        Ticket ticket = bookingService.bookSeat(showTimeId, seats.get(index).getSeatID(), "Benchmark Customer");
+        if (ticket == null) {
+            throw new IllegalStateException("Seat " + seats.get(index).getSeatID() + " was not free");
+        }
+        return ticket;
+    }
+}
@@ -0,0 +1,97 @@
+package com.movieticketsystem.movieticketapp.benchmark;
+
+import com.movieticketsystem.movieticketapp.MovieticketappApplication;
+import com.movieticketsystem.movieticketapp.model.Movie;
+import com.movieticketsystem.movieticketapp.model.Seat;
+import com.movieticketsystem.movieticketapp.model.ShowTime;
+import com.movieticketsystem.movieticketapp.model.Ticket;
+import com.movieticketsystem.movieticketapp.repository.MovieRepository;
+import com.movieticketsystem.movieticketapp.repository.ShowTimeRepository;
+import com.movieticketsystem.movieticketapp.service.BookingService;
+import com.movieticketsystem.movieticketapp.service.SeatBulkGenerator;
+import com.movieticketsystem.movieticketapp.service.SeatManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * End-to-end BookingService.bookSeat against embedded H2 (the test profile's in-memory database).
+ * A seat can only be booked once per showtime, so every iteration books all seats of a fresh showtime in the same
+ * theater;
+ * the score is the time for one batch of {@link #BOOKINGS_PER_ITERATION} bookings per thread.
+ * With -t N the threads book disjoint seats of the same showtime, competing for its AvailableSeats row.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, batchSize = BookingServiceBenchmark.BOOKINGS_PER_ITERATION)
+@Measurement(iterations = 10, batchSize = BookingServiceBenchmark.BOOKINGS_PER_ITERATION)
+@Fork(1)
+public class BookingServiceBenchmark {
+
+    static final int BOOKINGS_PER_ITERATION = 200;
+    static final int THEATER = 1;
+
+    ConfigurableApplicationContext context;
+    BookingService bookingService;
+    ShowTimeRepository showTimeRepository;
+    SeatManager seatManager;
+    Movie movie;
+    int capacity;
+
+    Integer showTimeId;
+    List<Seat> seats;
+    final AtomicInteger next = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    public void startApplication(BenchmarkParams params) {
+        context = new SpringApplicationBuilder(MovieticketappApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--app.load-demo-data=false", "--logging.level.root=WARN");
+        bookingService = context.getBean(BookingService.class);
+        showTimeRepository = context.getBean(ShowTimeRepository.class);
+        seatManager = context.getBean(SeatManager.class);
+        movie = context.getBean(MovieRepository.class)
+                .save(new Movie("Benchmark Movie", "Benchmark", 100, new BigDecimal("100000.0")));
+        capacity = BOOKINGS_PER_ITERATION * params.getThreads();
+        seats = context.getBean(SeatBulkGenerator.class).generateSeats(THEATER, 'A', 'T', capacity / 20); // 20 rows
+    }
+
+    @Setup(Level.Iteration)
+    public void createShowTime() {
+        ShowTime showTime = showTimeRepository.save(new ShowTime(movie, LocalDateTime.now().plusDays(1), THEATER,
+                capacity, capacity));
+        showTimeId = showTime.getShowTimeID();
+        seatManager.loadShowTime(showTimeId, THEATER, new int[0]);
+        next.set(0);
+    }
+
+    @TearDown(Level.Trial)
+    public void stopApplication() {
+        context.close();
+    }
+
+    @Benchmark
+    public Ticket bookSeat() {
+        return bookingService.bookSeat(showTimeId, seats.get(next.getAndIncrement()).getSeatID(), "Benchmark Customer");
+    }
+}
@@ -0,0 +1,101 @@
+package com.movieticketsystem.movieticketapp.benchmark;
+
+import com.movieticketsystem.movieticketapp.model.Seat;
+import com.movieticketsystem.movieticketapp.service.SeatManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory booking throughput of SeatManager.
+ * "hot" puts every thread on the same showtime (neighbouring seats share bitmap words), "cold" gives each
+ * thread its own showtime. Run with -t 1, -t 4, -t max, ... to see how it scales with threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SeatManagerBenchmark {
+
+    static final int SHOWTIMES = 64;
+
+    @Param({"hot", "cold"})
+    public String contention;
+
+    @Param({"300"})
+    public int seatsPerShowTime;
+
+    SeatManager seatManager;
+
+    @Setup
+    public void setUp() {
+        seatManager = new SeatManager();
+        for (int showTimeId = 1; showTimeId <= SHOWTIMES; showTimeId++) {
+            seatManager.loadShowTime(showTimeId, seats(showTimeId, seatsPerShowTime), new int[0]);
+        }
+    }
+
+    /**
+     * Creates seats with IDs {@code showTimeId * 100_000 + 1 ..}, ten per row, in a theater of their own.
+     */
+    static List<Seat> seats(int showTimeId, int count) {
+        List<Seat> seats = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Seat seat = new Seat(showTimeId, "R" + (i / 10 + 1), i % 10 + 1);
+            seat.setSeatID(showTimeId * 100_000 + i + 1);
+            seats.add(seat);
+        }
+        return seats;
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int showTimeId;
+        int firstSeatId;
+        int seatCount;
+        int next;
+
+        @Setup
+        public void setUp(SeatManagerBenchmark benchmark, ThreadParams threads) {
+            boolean hot = "hot".equals(benchmark.contention);
+            showTimeId = hot ? 1 : threads.getThreadIndex() % SHOWTIMES + 1;
+            firstSeatId = showTimeId * 100_000 + 1;
+            seatCount = benchmark.seatsPerShowTime;
+            // On the hot showtime threads start apart but walk through the same seats
+            next = hot ? threads.getThreadIndex() * 7 % seatCount : 0;
+        }
+
+        int nextSeatId() {
+            int seatId = firstSeatId + next;
+            next = next + 1 == seatCount ? 0 : next + 1;
+            return seatId;
+        }
+    }
+
+    @Benchmark
+    public boolean bookThenCancel(Cursor cursor) {
+        int seatId = cursor.nextSeatId();
+        // A lost race on the hot showtime is a conflict, which is part of what is measured
+        return seatManager.tryBookSeat(cursor.showTimeId, seatId) && seatManager.tryCancelSeat(cursor.showTimeId, seatId);
+    }
+
+    @Benchmark
+    public boolean isSeatAvailable(Cursor cursor) {
+        return seatManager.isSeatAvailable(cursor.showTimeId, cursor.nextSeatId());
+    }
+}
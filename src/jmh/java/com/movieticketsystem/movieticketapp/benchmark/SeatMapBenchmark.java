@@ -0,0 +1,89 @@
+package com.movieticketsystem.movieticketapp.benchmark;
+
+import com.movieticketsystem.movieticketapp.model.Seat;
+import com.movieticketsystem.movieticketapp.service.SeatManager;
+import com.movieticketsystem.movieticketapp.service.SeatMapSnapshot;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Cost of producing the seat map for the showtime page, about a third of the seats booked.
+ * {@code legacyControllerGrouping} reproduces what MovieController.showSeats did before the seat map was
+ * precomputed, and is kept as the baseline for the snapshot variants.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SeatMapBenchmark {
+
+    private static final int SHOWTIME_ID = 1;
+
+    @Param({"100", "300", "1000"})
+    public int seats;
+
+    SeatManager seatManager;
+    int toggledSeatId;
+
+    @Setup
+    public void setUp() {
+        seatManager = new SeatManager();
+        List<Seat> layout = SeatManagerBenchmark.seats(SHOWTIME_ID, seats);
+        int[] booked = layout.stream().mapToInt(Seat::getSeatID).filter(id -> id % 3 == 0).toArray();
+        seatManager.loadShowTime(SHOWTIME_ID, layout, booked);
+        toggledSeatId = layout.get(1).getSeatID();
+    }
+
+    @Benchmark
+    public Map<Integer, SeatManager.SeatStatus> seatsWithStatus() {
+        return seatManager.getSeatsWithStatusForShowTime(SHOWTIME_ID);
+    }
+
+    @Benchmark
+    public Map<String, List<SeatManager.SeatStatus>> legacyControllerGrouping() {
+        return seatManager.getSeatsWithStatusForShowTime(SHOWTIME_ID).values().stream()
+                .sorted((s1, s2) -> {
+                    int rowCompare = s1.getSeat().getSeatRow().compareTo(s2.getSeat().getSeatRow());
+                    if (rowCompare != 0) {
+                        return rowCompare;
+                    }
+                    return s1.getSeat().getSeatNumber().compareTo(s2.getSeat().getSeatNumber());
+                })
+                .collect(Collectors.groupingBy(s -> s.getSeat().getSeatRow()));
+    }
+
+    /**
+     * Nothing changed since the previous request: the cached snapshot is returned.
+     */
+    @Benchmark
+    public SeatMapSnapshot seatMapUnchanged() {
+        return seatManager.getSeatMap(SHOWTIME_ID);
+    }
+
+    /**
+     * A seat changes before every request, so each call overlays the bitmap onto the precomputed layout.
+     */
+    @Benchmark
+    public SeatMapSnapshot seatMapAfterChange() {
+        if (!seatManager.tryBookSeat(SHOWTIME_ID, toggledSeatId)) {
+            seatManager.tryCancelSeat(SHOWTIME_ID, toggledSeatId);
+        }
+        return seatManager.getSeatMap(SHOWTIME_ID);
+    }
+}
@@ -0,0 +1,114 @@
+package com.movieticketsystem.movieticketapp.controller;
+
+import com.movieticketsystem.movieticketapp.service.BookingRouter;
+import com.movieticketsystem.movieticketapp.service.BookingService;
+import com.movieticketsystem.movieticketapp.service.ClusterClient;
+import com.movieticketsystem.movieticketapp.service.ClusterMembership;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.List;
+
+/**
+ * Internal API through which other nodes forward seat operations to the owner of a showtime (partitioned mode).
+ * Requests for showtimes this node does not own are answered with 421 Misdirected Request instead of being
+ * forwarded again, so a node with a stale member list can never bounce a request around.
+ * Callers must send the shared {@code app.cluster.secret}, which is required when cluster mode is enabled.
+ */
+@RestController
+@RequestMapping("/internal/cluster/showtimes/{showTimeId}")
+public class ClusterController {
+
+    private final ClusterMembership membership;
+    private final BookingRouter bookingRouter;
+    private final BookingService bookingService;
+    private final byte[] secret;
+
+    @Autowired
+    public ClusterController(ClusterMembership membership, BookingRouter bookingRouter, BookingService bookingService,
+                             @Value("${app.cluster.secret:}") String secret) {
+        this.membership = membership;
+        this.bookingRouter = bookingRouter;
+        this.bookingService = bookingService;
+        if (membership.isEnabled() && secret.isBlank()) {
+            throw new IllegalStateException("app.cluster.enabled is set but app.cluster.secret is empty");
+        }
+        this.secret = secret.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @PostMapping("/bookings")
+    public List<BookingRouter.BookedTicket> book(@PathVariable Integer showTimeId, @RequestBody BookingRouter.Command command,
+                                                 @RequestHeader(name = ClusterClient.SECRET_HEADER, required = false) String callerSecret) {
+        checkOwner(showTimeId, callerSecret);
+        return bookingRouter.bookLocally(showTimeId, command.seatIds(), command.customerName(), command.sessionId(),
+                command.idempotencyKey());
+    }
+
+    @PostMapping("/best-available")
+    public List<BookingRouter.BookedTicket> bookBestAvailable(@PathVariable Integer showTimeId,
+                                                              @RequestBody BookingRouter.Command command,
+                                                              @RequestHeader(name = ClusterClient.SECRET_HEADER, required = false) String callerSecret) {
+        checkOwner(showTimeId, callerSecret);
+        return bookingRouter.bookBestAvailableLocally(showTimeId, command.count(), command.customerName(),
+                command.idempotencyKey());
+    }
+
+    @PostMapping("/holds")
+    public boolean hold(@PathVariable Integer showTimeId, @RequestBody BookingRouter.Command command,
+                        @RequestHeader(name = ClusterClient.SECRET_HEADER, required = false) String callerSecret) {
+        checkOwner(showTimeId, callerSecret);
+        return bookingRouter.hold(showTimeId, command.seatIds(), command.sessionId());
+    }
+
+    @PostMapping("/tickets/{ticketId}/cancel")
+    public boolean cancel(@PathVariable Integer showTimeId, @PathVariable Integer ticketId,
+                          @RequestBody BookingRouter.Command command,
+                          @RequestHeader(name = ClusterClient.SECRET_HEADER, required = false) String callerSecret) {
+        checkOwner(showTimeId, callerSecret);
+        return bookingRouter.cancel(showTimeId, ticketId, command.idempotencyKey());
+    }
+
+    // Step one of a showtime cancellation started on another node: stop claiming its seats here
+    @PostMapping("/close-sales")
+    public boolean closeSales(@PathVariable Integer showTimeId,
+                              @RequestHeader(name = ClusterClient.SECRET_HEADER, required = false) String callerSecret) {
+        checkOwner(showTimeId, callerSecret);
+        return bookingService.closeSales(showTimeId);
+    }
+
+    // The cancellation has committed: drop the showtime from memory and the catalog
+    @PostMapping("/canceled")
+    public void canceled(@PathVariable Integer showTimeId,
+                         @RequestHeader(name = ClusterClient.SECRET_HEADER, required = false) String callerSecret) {
+        checkOwner(showTimeId, callerSecret);
+        bookingService.dropCanceledShowTime(showTimeId);
+    }
+
+    @GetMapping("/state")
+    public BookingRouter.SeatState seatState(@PathVariable Integer showTimeId,
+                                             @RequestParam(required = false) String sessionId,
+                                             @RequestHeader(name = ClusterClient.SECRET_HEADER, required = false) String callerSecret) {
+        checkOwner(showTimeId, callerSecret);
+        return bookingRouter.localSeatState(showTimeId, sessionId);
+    }
+
+    private void checkOwner(Integer showTimeId, String callerSecret) {
+        if (!membership.isEnabled()) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND);
+        }
+        // Constant-time comparison, so the secret cannot be guessed byte by byte from response times
+        if (callerSecret == null || !MessageDigest.isEqual(secret, callerSecret.getBytes(StandardCharsets.UTF_8))) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN);
+        }
+        if (!membership.isLocal(showTimeId)) {
+            throw new ResponseStatusException(HttpStatusCode.valueOf(421),
+                    "Showtime " + showTimeId + " is owned by " + membership.ownerOf(showTimeId));
+        }
+    }
+}
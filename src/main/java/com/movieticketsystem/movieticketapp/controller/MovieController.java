@@ -1,59 +1,85 @@
 package com.movieticketsystem.movieticketapp.controller;
 
-import com.movieticketsystem.movieticketapp.model.Movie;
 import com.movieticketsystem.movieticketapp.model.Seat;
-import com.movieticketsystem.movieticketapp.model.ShowTime;
-import com.movieticketsystem.movieticketapp.model.Ticket;
 import com.movieticketsystem.movieticketapp.repository.MovieRepository;
 import com.movieticketsystem.movieticketapp.repository.ShowTimeRepository;
-import com.movieticketsystem.movieticketapp.service.BookingService;
+import com.movieticketsystem.movieticketapp.service.AdmissionManager;
+import com.movieticketsystem.movieticketapp.service.BookingRouter;
+import com.movieticketsystem.movieticketapp.service.CatalogCache;
+import com.movieticketsystem.movieticketapp.service.SeatHoldManager;
 import com.movieticketsystem.movieticketapp.service.SeatManager;
+import com.movieticketsystem.movieticketapp.service.SeatMapEventBroadcaster;
+import com.movieticketsystem.movieticketapp.service.SeatMapSnapshot;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpSession;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
+import java.time.Duration;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.stream.Collectors;
 
 @Controller
 @RequestMapping("/")
 public class MovieController {
 
-    private final MovieRepository movieRepository;
-    private final ShowTimeRepository showTimeRepository;
+    private static final Logger log = LoggerFactory.getLogger(MovieController.class);
+
+    private final CatalogCache catalogCache;
     private final SeatManager seatManager;
-    private final BookingService bookingService;
+    private final BookingRouter bookingRouter;
+    private final SeatHoldManager seatHoldManager;
+    private final SeatMapEventBroadcaster seatMapEventBroadcaster;
+    private final AdmissionManager admissionManager;
+    private final Timer seatMapTimer;
 
     @Autowired
-    public MovieController(MovieRepository movieRepository, ShowTimeRepository showTimeRepository,
-                           SeatManager seatManager, BookingService bookingService) {
-        this.movieRepository = movieRepository;
-        this.showTimeRepository = showTimeRepository;
+    public MovieController(CatalogCache catalogCache, SeatManager seatManager, BookingRouter bookingRouter,
+                           SeatHoldManager seatHoldManager, SeatMapEventBroadcaster seatMapEventBroadcaster,
+                           AdmissionManager admissionManager, MeterRegistry meterRegistry) {
+        this.catalogCache = catalogCache;
         this.seatManager = seatManager;
-        this.bookingService = bookingService;
+        this.bookingRouter = bookingRouter;
+        this.seatHoldManager = seatHoldManager;
+        this.seatMapEventBroadcaster = seatMapEventBroadcaster;
+        this.admissionManager = admissionManager;
+        // Full page latency including Thymeleaf rendering is http.server.requests{uri=/showtime/{showTimeId}}
+        this.seatMapTimer = Timer.builder("seatmap.snapshot")
+                .description("Time to obtain the seat-map snapshot for the showtime page")
+                .register(meterRegistry);
     }
 
     /**
-     * Displays the list of all movies.
+     * Displays the list of all movies (cached, see CatalogCache).
      */
     @GetMapping
     public String listMovies(Model model) {
-        List<Movie> movies = movieRepository.findAll();
+        List<MovieRepository.MovieSummary> movies = catalogCache.getMovies();
         model.addAttribute("movies", movies);
         return "index"; // Renders src/main/resources/templates/index.html
     }
 
     /**
-     * Displays showtimes for a selected movie.
+     * Displays showtimes for a selected movie, with live available-seat counts.
      */
     @GetMapping("/movie/{movieId}")
     public String listShowTimes(@PathVariable Integer movieId, Model model) {
-        Movie movie = movieRepository.findById(movieId)
+        MovieRepository.MovieSummary movie = catalogCache.getMovie(movieId)
                 .orElseThrow(() -> new IllegalArgumentException("Invalid movie ID: " + movieId));
-        List<ShowTime> showTimes = showTimeRepository.findByMovieMovieID(movieId);
+        List<CatalogCache.ShowTimeEntry> showTimes = catalogCache.getShowTimes(movieId);
 
         model.addAttribute("movie", movie);
         model.addAttribute("showTimes", showTimes);
@@ -62,66 +88,176 @@ public class MovieController {
 
     /**
      * Displays seats for a selected showtime.
-     * Seats are grouped by row for better display.
+     * The row-ordered seat map comes precomputed from SeatManager; its epoch and version, together with the
+     * visitor's held seats, form a weak ETag so an unchanged page is answered with 304 Not Modified.
+     * While the showtime's waiting room is open, sessions that are not admitted are sent to the queue page.
      */
     @GetMapping("/showtime/{showTimeId}")
-    public String showSeats(@PathVariable Integer showTimeId, Model model) {
-        ShowTime showTime = showTimeRepository.findById(showTimeId)
+    public String showSeats(@PathVariable Integer showTimeId, Model model, HttpSession session,
+                            WebRequest webRequest, HttpServletResponse response) {
+        ShowTimeRepository.ShowTimeSummary showTime = catalogCache.getShowTimeSummary(showTimeId)
                 .orElseThrow(() -> new IllegalArgumentException("Invalid showtime ID: " + showTimeId));
+        if (!admissionManager.enter(showTimeId, session.getId())) {
+            return "redirect:/showtime/" + showTimeId + "/queue";
+        }
+
+        // Seats this visitor currently holds, rendered as a checkout panel (in partitioned mode this also
+        // refreshes the local copy of a showtime owned by another node, so it runs before the snapshot)
+        List<Integer> heldSeatIds = bookingRouter.prepareSeatPage(showTimeId, session.getId());
+        heldSeatIds.sort(null);
+        SeatMapSnapshot seatMap = seatMapTimer.record(() -> seatManager.getSeatMap(showTimeId));
+
+        // A flash message is shown only once, so a page carrying one gets no ETag and is never revalidated
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "private, no-cache");
+        boolean hasFlashMessage = model.containsAttribute("successMessage") || model.containsAttribute("errorMessage");
+        String etag = "W/\"" + showTimeId + "-" + Long.toHexString(seatMap.getEpoch()) + "-" + seatMap.getVersion()
+                + "-" + Integer.toHexString(heldSeatIds.hashCode()) + "\"";
+        if (!hasFlashMessage && webRequest.checkNotModified(etag)) {
+            return null;
+        }
 
-        // Get seats with their current availability status from SeatManager (in-memory)
-        Map<Integer, SeatManager.SeatStatus> seatsWithStatus = seatManager.getSeatsWithStatusForShowTime(showTimeId);
-
-        // Group seats by row for display
-        Map<String, List<SeatManager.SeatStatus>> seatsByRow = seatsWithStatus.values().stream()
-                .sorted((s1, s2) -> {
-                    // Sort first by row (alphabetical), then by seat number
-                    int rowCompare = s1.getSeat().getSeatRow().compareTo(s2.getSeat().getSeatRow());
-                    if (rowCompare != 0) {
-                        return rowCompare;
-                    }
-                    return s1.getSeat().getSeatNumber().compareTo(s2.getSeat().getSeatNumber());
-                })
-                .collect(Collectors.groupingBy(s -> s.getSeat().getSeatRow()));
+        List<Seat> heldSeats = heldSeatIds.stream()
+                .map(seatId -> seatManager.getSeat(showTimeId, seatId))
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
 
         model.addAttribute("showTime", showTime);
-        model.addAttribute("seatsByRow", seatsByRow);
+        model.addAttribute("seatMap", seatMap);
+        model.addAttribute("heldSeatIds", heldSeatIds);
+        model.addAttribute("heldSeats", heldSeats);
         return "showtime"; // Renders src/main/resources/templates/showtime.html
     }
 
     /**
-     * Handles the booking of a seat.
+     * Streams seat changes of a showtime as Server-Sent Events, so open seat pages stay current without reloading.
+     */
+    @GetMapping(path = "/showtime/{showTimeId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @ResponseBody
+    public SseEmitter seatEvents(@PathVariable Integer showTimeId) {
+        return seatMapEventBroadcaster.subscribe(showTimeId);
+    }
+
+    /**
+     * Waiting room page, shown while the showtime's demand is too high to let every visitor pick seats at once.
+     */
+    @GetMapping("/showtime/{showTimeId}/queue")
+    public String waitingRoom(@PathVariable Integer showTimeId, Model model, HttpSession session) {
+        long position = admissionManager.position(showTimeId, session.getId());
+        if (position <= 0) {
+            // Admitted, or not queued at all: the seat page admits or queues the session
+            return "redirect:/showtime/" + showTimeId;
+        }
+        model.addAttribute("showTimeId", showTimeId);
+        model.addAttribute("position", position);
+        return "waiting-room"; // Renders src/main/resources/templates/waiting-room.html
+    }
+
+    /**
+     * Queue position polled by the waiting room page. Polling also keeps the session's place in the queue.
+     * A position of 0 means admitted, -1 that the session is no longer queued; either way the page goes to the seats.
+     */
+    @GetMapping("/showtime/{showTimeId}/queue/status")
+    @ResponseBody
+    public Map<String, Object> queueStatus(@PathVariable Integer showTimeId, HttpSession session) {
+        long position = admissionManager.position(showTimeId, session.getId());
+        return Map.of("admitted", position == 0, "position", position);
+    }
+
+    /**
+     * Handles the booking of one or more seats.
+     * Several seat IDs (repeated or comma-separated) are booked together, all or nothing.
+     * Seats held by the visitor's session are converted from their hold.
+     * A resubmitted form carries the same idempotency key and gets the original result.
      */
     @PostMapping("/book")
     public String bookSeat(@RequestParam Integer showTimeId,
-                           @RequestParam Integer seatId,
+                           @RequestParam("seatId") List<Integer> seatIds,
                            @RequestParam String customerName,
+                           @RequestParam(required = false) String idempotencyKey,
+                           HttpSession session,
                            RedirectAttributes redirectAttributes) {
+        if (!admissionManager.isAdmitted(showTimeId, session.getId())) {
+            return "redirect:/showtime/" + showTimeId + "/queue";
+        }
         try {
-            Ticket bookedTicket = bookingService.bookSeat(showTimeId, seatId, customerName);
-            if (bookedTicket != null) {
-                redirectAttributes.addFlashAttribute("successMessage",
-                        "Booking successful! Ticket ID: " + bookedTicket.getTicketID() +
-                                " for seat " + bookedTicket.getSeat().getSeatRow() + bookedTicket.getSeat().getSeatNumber());
+            List<BookingRouter.BookedTicket> bookedTickets =
+                    bookingRouter.book(showTimeId, seatIds, customerName, session.getId(), idempotencyKey);
+
+            if (!bookedTickets.isEmpty()) {
+                // Done buying: hand the slot to the next session in the waiting room
+                admissionManager.release(showTimeId, session.getId());
+                redirectAttributes.addFlashAttribute("successMessage", bookingSuccessMessage(bookedTickets));
             } else {
                 redirectAttributes.addFlashAttribute("errorMessage", "Seat is already booked or an error occurred.");
             }
         } catch (Exception e) {
             redirectAttributes.addFlashAttribute("errorMessage", "Error during booking: " + e.getMessage());
-            e.printStackTrace(); // Log the exception for debugging
+            log.error("Booking seats {} for showtime {} failed", seatIds, showTimeId, e);
         }
         return "redirect:/showtime/" + showTimeId; // Redirect back to the showtime page
     }
 
+    /**
+     * Books the best block of adjacent free seats for a group, so the visitor does not have to pick them one by one.
+     */
+    @PostMapping("/book-best")
+    public String bookBestAvailable(@RequestParam Integer showTimeId,
+                                    @RequestParam Integer count,
+                                    @RequestParam String customerName,
+                                    @RequestParam(required = false) String idempotencyKey,
+                                    HttpSession session,
+                                    RedirectAttributes redirectAttributes) {
+        if (!admissionManager.isAdmitted(showTimeId, session.getId())) {
+            return "redirect:/showtime/" + showTimeId + "/queue";
+        }
+        try {
+            List<BookingRouter.BookedTicket> bookedTickets =
+                    bookingRouter.bookBestAvailable(showTimeId, count, customerName, idempotencyKey);
+            if (!bookedTickets.isEmpty()) {
+                admissionManager.release(showTimeId, session.getId());
+                redirectAttributes.addFlashAttribute("successMessage", bookingSuccessMessage(bookedTickets));
+            } else {
+                redirectAttributes.addFlashAttribute("errorMessage", "No " + count + " adjacent seats are available.");
+            }
+        } catch (Exception e) {
+            redirectAttributes.addFlashAttribute("errorMessage", "Error during booking: " + e.getMessage());
+            log.error("Booking {} best available seats for showtime {} failed", count, showTimeId, e);
+        }
+        return "redirect:/showtime/" + showTimeId;
+    }
+
+    /**
+     * Holds the selected seats for the visitor's session while they check out.
+     */
+    @PostMapping("/hold")
+    public String holdSeats(@RequestParam Integer showTimeId,
+                            @RequestParam("seatId") List<Integer> seatIds,
+                            HttpSession session,
+                            RedirectAttributes redirectAttributes) {
+        if (!admissionManager.isAdmitted(showTimeId, session.getId())) {
+            return "redirect:/showtime/" + showTimeId + "/queue";
+        }
+        if (bookingRouter.hold(showTimeId, seatIds, session.getId())) {
+            Duration ttl = seatHoldManager.getTtl();
+            String holdTime = ttl.toMinutes() > 0 ? ttl.toMinutes() + " minutes" : ttl.toSeconds() + " seconds";
+            redirectAttributes.addFlashAttribute("successMessage",
+                    "Seats held for " + holdTime + ". Complete your booking below.");
+        } else {
+            redirectAttributes.addFlashAttribute("errorMessage", "Some of the selected seats are no longer available.");
+        }
+        return "redirect:/showtime/" + showTimeId;
+    }
+
     /**
      * Handles the cancellation of a ticket.
      */
     @PostMapping("/cancel")
     public String cancelTicket(@RequestParam Integer ticketId,
                                @RequestParam Integer showTimeId, // Need showTimeId to redirect back
+                               @RequestParam(required = false) String idempotencyKey,
                                RedirectAttributes redirectAttributes) {
         try {
-            boolean canceled = bookingService.cancelTicket(ticketId);
+            boolean canceled = bookingRouter.cancel(showTimeId, ticketId, idempotencyKey);
             if (canceled) {
                 redirectAttributes.addFlashAttribute("successMessage", "Ticket ID " + ticketId + " successfully canceled.");
             } else {
@@ -129,8 +265,17 @@ public class MovieController {
             }
         } catch (Exception e) {
             redirectAttributes.addFlashAttribute("errorMessage", "Error during cancellation: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Canceling ticket {} failed", ticketId, e);
         }
         return "redirect:/showtime/" + showTimeId; // Redirect back to the showtime page
     }
+
+    private static String bookingSuccessMessage(List<BookingRouter.BookedTicket> bookedTickets) {
+        return "Booking successful! Ticket ID: " +
+                bookedTickets.stream()
+                        .map(t -> t.ticketId() != null ? String.valueOf(t.ticketId()) : "pending")
+                        .collect(Collectors.joining(", ")) +
+                " for seat " +
+                bookedTickets.stream().map(t -> t.seatRow() + t.seatNumber()).collect(Collectors.joining(", "));
+    }
 }
@@ -0,0 +1,120 @@
+package com.movieticketsystem.movieticketapp.model;
+
+import jakarta.persistence.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * A seat of a journaled write-behind booking that could not be written to Tickets.
+ * The buyer was already told the booking succeeded, so the seat stays booked until an operator
+ * repairs the booking (inserts its ticket or refunds it) and deletes the row.
+ */
+@Entity
+@Table(name = "BookingDeadLetters", indexes = @Index(name = "IX_BookingDeadLetter_ShowTime", columnList = "ShowTimeID"))
+public class BookingDeadLetter {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "DeadLetterID")
+    private Integer deadLetterID;
+
+    @Column(name = "ShowTimeID", nullable = false)
+    private Integer showTimeID;
+
+    @Column(name = "SeatID", nullable = false)
+    private Integer seatID;
+
+    @Column(name = "BookingTime", nullable = false)
+    private LocalDateTime bookingTime;
+
+    @Column(name = "CustomerName")
+    private String customerName;
+
+    @Column(name = "Price", nullable = false)
+    private BigDecimal price;
+
+    @Column(name = "IdempotencyKey", length = 64)
+    private String idempotencyKey;
+
+    @Column(name = "Error", length = 1000)
+    private String error;
+
+    @Column(name = "ParkedAt", nullable = false)
+    private LocalDateTime parkedAt;
+
+    public BookingDeadLetter() {
+    }
+
+    // Getters and Setters
+    public Integer getDeadLetterID() {
+        return deadLetterID;
+    }
+
+    public void setDeadLetterID(Integer deadLetterID) {
+        this.deadLetterID = deadLetterID;
+    }
+
+    public Integer getShowTimeID() {
+        return showTimeID;
+    }
+
+    public void setShowTimeID(Integer showTimeID) {
+        this.showTimeID = showTimeID;
+    }
+
+    public Integer getSeatID() {
+        return seatID;
+    }
+
+    public void setSeatID(Integer seatID) {
+        this.seatID = seatID;
+    }
+
+    public LocalDateTime getBookingTime() {
+        return bookingTime;
+    }
+
+    public void setBookingTime(LocalDateTime bookingTime) {
+        this.bookingTime = bookingTime;
+    }
+
+    public String getCustomerName() {
+        return customerName;
+    }
+
+    public void setCustomerName(String customerName) {
+        this.customerName = customerName;
+    }
+
+    public BigDecimal getPrice() {
+        return price;
+    }
+
+    public void setPrice(BigDecimal price) {
+        this.price = price;
+    }
+
+    public String getIdempotencyKey() {
+        return idempotencyKey;
+    }
+
+    public void setIdempotencyKey(String idempotencyKey) {
+        this.idempotencyKey = idempotencyKey;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    public LocalDateTime getParkedAt() {
+        return parkedAt;
+    }
+
+    public void setParkedAt(LocalDateTime parkedAt) {
+        this.parkedAt = parkedAt;
+    }
+}
@@ -1,9 +1,11 @@
 package com.movieticketsystem.movieticketapp.model;
 
+import com.movieticketsystem.movieticketapp.service.CatalogChangeListener;
 import jakarta.persistence.*;
 import java.math.BigDecimal;
 
 @Entity
+@EntityListeners(CatalogChangeListener.class) // keeps the cached catalog pages current
 @Table(name = "Movies")
 public class Movie {
     @Id
@@ -2,17 +2,18 @@ package com.movieticketsystem.movieticketapp.model;
 
 import jakarta.persistence.*;
 
+// A seat of a theater's layout. Every showtime in that theater (ShowTime.theaterNumber) shares these rows;
+// which of them are booked for a showtime is recorded by its tickets.
 @Entity
-@Table(name = "Seats", uniqueConstraints = @UniqueConstraint(columnNames = {"ShowTimeID", "SeatRow", "SeatNumber"}))
+@Table(name = "Seats", uniqueConstraints = @UniqueConstraint(columnNames = {"TheaterNumber", "SeatRow", "SeatNumber"}))
 public class Seat {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     @Column(name = "SeatID")
     private Integer seatID;
 
-    @ManyToOne(fetch = FetchType.LAZY)
-    @JoinColumn(name = "ShowTimeID", nullable = false)
-    private ShowTime showTime;
+    @Column(name = "TheaterNumber", nullable = false)
+    private Integer theaterNumber;
 
     @Column(name = "SeatRow", nullable = false)
     private String seatRow;
@@ -27,8 +28,8 @@ public class Seat {
     public Seat() {
     }
 
-    public Seat(ShowTime showTime, String seatRow, Integer seatNumber) {
-        this.showTime = showTime;
+    public Seat(Integer theaterNumber, String seatRow, Integer seatNumber) {
+        this.theaterNumber = theaterNumber;
         this.seatRow = seatRow;
         this.seatNumber = seatNumber;
     }
@@ -42,12 +43,12 @@ public class Seat {
         this.seatID = seatID;
     }
 
-    public ShowTime getShowTime() {
-        return showTime;
+    public Integer getTheaterNumber() {
+        return theaterNumber;
     }
 
-    public void setShowTime(ShowTime showTime) {
-        this.showTime = showTime;
+    public void setTheaterNumber(Integer theaterNumber) {
+        this.theaterNumber = theaterNumber;
     }
 
     public String getSeatRow() {
@@ -66,8 +67,8 @@ public class Seat {
         this.seatNumber = seatNumber;
     }
 
-    // Helper method to get a unique identifier for a seat within a showtime
+    // Helper method to get a unique identifier for a seat within the theater layouts
     public String getUniqueSeatIdentifier() {
-        return showTime.getShowTimeID() + "-" + seatRow + seatNumber;
+        return theaterNumber + "-" + seatRow + seatNumber;
     }
 }
@@ -1,9 +1,13 @@
 package com.movieticketsystem.movieticketapp.model;
 
+import com.movieticketsystem.movieticketapp.service.CatalogChangeListener;
 import jakarta.persistence.*;
+import org.hibernate.annotations.ColumnDefault;
+
 import java.time.LocalDateTime;
 
 @Entity
+@EntityListeners(CatalogChangeListener.class) // keeps the cached catalog pages current
 @Table(name = "ShowTimes")
 public class ShowTime {
     @Id
@@ -27,6 +31,11 @@ public class ShowTime {
     @Column(name = "AvailableSeats", nullable = false)
     private Integer availableSeats; // This will be updated by the application
 
+    // Set when the screening is canceled with all its tickets; its sales stay closed
+    @ColumnDefault("0")
+    @Column(name = "IsCanceled", nullable = false)
+    private Boolean isCanceled = false;
+
     public ShowTime() {
     }
 
@@ -86,4 +95,12 @@ public class ShowTime {
     public void setAvailableSeats(Integer availableSeats) {
         this.availableSeats = availableSeats;
     }
-}
\ No newline at end of file
+
+    public Boolean getIsCanceled() {
+        return isCanceled;
+    }
+
+    public void setIsCanceled(Boolean canceled) {
+        isCanceled = canceled;
+    }
+}
@@ -1,11 +1,14 @@
 package com.movieticketsystem.movieticketapp.model;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.ColumnDefault;
+
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "Tickets", uniqueConstraints = @UniqueConstraint(columnNames = {"ShowTimeID", "SeatID"}))
+@Table(name = "Tickets", uniqueConstraints = @UniqueConstraint(columnNames = {"ShowTimeID", "SeatID", "CancelToken"}),
+        indexes = @Index(name = "IX_Ticket_IdempotencyKey", columnList = "IdempotencyKey"))
 public class Ticket {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -16,7 +19,8 @@ public class Ticket {
     @JoinColumn(name = "ShowTimeID", nullable = false)
     private ShowTime showTime;
 
-    @OneToOne(fetch = FetchType.LAZY)
+    // Seats belong to the theater layout, so the same seat has tickets in many showtimes
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "SeatID", nullable = false)
     private Seat seat;
 
@@ -32,6 +36,21 @@ public class Ticket {
     @Column(name = "IsCanceled")
     private Boolean isCanceled;
 
+    // 0 while the ticket is active and its own TicketID once canceled, so the unique key on
+    // (ShowTimeID, SeatID, CancelToken) allows one active ticket per seat but any number of canceled ones
+    @ColumnDefault("0")
+    @Column(name = "CancelToken", nullable = false)
+    private Integer cancelToken = 0;
+
+    // Client-chosen key of the booking request; shared by all tickets booked together
+    @Column(name = "IdempotencyKey", length = 64)
+    private String idempotencyKey;
+
+    // Set when the ticket is canceled with its whole showtime, cleared once the refund has been handed over
+    @ColumnDefault("0")
+    @Column(name = "RefundPending", nullable = false)
+    private Boolean refundPending = false;
+
     public Ticket() {
     }
 
@@ -100,4 +119,28 @@ public class Ticket {
     public void setIsCanceled(Boolean canceled) {
         isCanceled = canceled;
     }
+
+    public Integer getCancelToken() {
+        return cancelToken;
+    }
+
+    public void setCancelToken(Integer cancelToken) {
+        this.cancelToken = cancelToken;
+    }
+
+    public String getIdempotencyKey() {
+        return idempotencyKey;
+    }
+
+    public void setIdempotencyKey(String idempotencyKey) {
+        this.idempotencyKey = idempotencyKey;
+    }
+
+    public Boolean getRefundPending() {
+        return refundPending;
+    }
+
+    public void setRefundPending(Boolean refundPending) {
+        this.refundPending = refundPending;
+    }
 }
@@ -0,0 +1,16 @@
+package com.movieticketsystem.movieticketapp.repository;
+
+import com.movieticketsystem.movieticketapp.model.BookingDeadLetter;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.stream.Stream;
+
+@Repository
+public interface BookingDeadLetterRepository extends JpaRepository<BookingDeadLetter, Integer> {
+    // Seats of parked write-behind bookings; they count as booked until an operator deletes the row
+    @Query("select d.seatID from BookingDeadLetter d where d.showTimeID = :showTimeId")
+    Stream<Integer> streamSeatIdsByShowTime(@Param("showTimeId") Integer showTimeId);
+}
@@ -2,9 +2,26 @@ package com.movieticketsystem.movieticketapp.repository;
 
 import com.movieticketsystem.movieticketapp.model.Movie;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.util.List;
+
 @Repository
 public interface MovieRepository extends JpaRepository<Movie, Integer> {
     // Basic CRUD operations are inherited
+
+    // Catalog projection: just what the movie pages render, without managed entities
+    @Query("select m.movieID as movieID, m.title as title, m.genre as genre, m.durationMinutes as durationMinutes, " +
+            "m.price as price from Movie m order by m.movieID")
+    List<MovieSummary> findAllSummaries();
+
+    interface MovieSummary {
+        Integer getMovieID();
+        String getTitle();
+        String getGenre();
+        Integer getDurationMinutes();
+        BigDecimal getPrice();
+    }
 }
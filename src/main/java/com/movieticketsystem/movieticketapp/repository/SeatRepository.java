@@ -2,13 +2,27 @@ package com.movieticketsystem.movieticketapp.repository;
 
 import com.movieticketsystem.movieticketapp.model.Seat;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface SeatRepository extends JpaRepository<Seat, Integer> {
-    List<Seat> findByShowTimeShowTimeID(Integer showTimeID);
-    Optional<Seat> findByShowTimeShowTimeIDAndSeatRowAndSeatNumber(Integer showTimeID, String seatRow, Integer seatNumber);
+    List<Seat> findByTheaterNumber(Integer theaterNumber);
+    Optional<Seat> findByTheaterNumberAndSeatRowAndSeatNumber(Integer theaterNumber, String seatRow, Integer seatNumber);
+
+    // Projection used to build a theater's layout in SeatManager; avoids loading and tracking Seat entities
+    @Query("select s.seatID as seatID, s.seatRow as seatRow, s.seatNumber as seatNumber " +
+            "from Seat s where s.theaterNumber = :theaterNumber")
+    Stream<SeatView> streamSeatViewsByTheater(@Param("theaterNumber") Integer theaterNumber);
+
+    interface SeatView {
+        Integer getSeatID();
+        String getSeatRow();
+        Integer getSeatNumber();
+    }
 }
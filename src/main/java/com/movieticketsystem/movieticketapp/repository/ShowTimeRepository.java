@@ -2,11 +2,98 @@ package com.movieticketsystem.movieticketapp.repository;
 
 import com.movieticketsystem.movieticketapp.model.ShowTime;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface ShowTimeRepository extends JpaRepository<ShowTime, Integer> {
     List<ShowTime> findByMovieMovieID(Integer movieID);
-}
\ No newline at end of file
+
+    // Catalog projection of a movie's bookable showtimes; availableSeats is only a fallback for showtimes not in SeatManager
+    @Query("select s.showTimeID as showTimeID, s.showTimeDateTime as showTimeDateTime, s.theaterNumber as theaterNumber, " +
+            "s.totalSeats as totalSeats, s.availableSeats as availableSeats from ShowTime s " +
+            "where s.movie.movieID = :movieId and s.isCanceled = false order by s.showTimeDateTime")
+    List<ShowTimeListing> findListingsByMovie(@Param("movieId") Integer movieId);
+
+    @Query("select s.movie.price from ShowTime s where s.showTimeID = :showTimeId")
+    Optional<BigDecimal> findTicketPrice(@Param("showTimeId") Integer showTimeId);
+
+    // Everything a booking reads from the showtime and its movie, in one round trip instead of two entity loads
+    @Query("select m.price as price, m.title as movieTitle, s.showTimeDateTime as showTimeDateTime " +
+            "from ShowTime s join s.movie m where s.showTimeID = :showTimeId")
+    Optional<BookingDetails> findBookingDetails(@Param("showTimeId") Integer showTimeId);
+
+    // Only what the seat page header needs, in one query instead of loading the ShowTime and its lazy Movie
+    @Query("select s.showTimeID as showTimeID, s.showTimeDateTime as showTimeDateTime, s.theaterNumber as theaterNumber, " +
+            "m.movieID as movieID, m.title as movieTitle from ShowTime s join s.movie m where s.showTimeID = :showTimeId")
+    Optional<ShowTimeSummary> findSummaryById(@Param("showTimeId") Integer showTimeId);
+
+    @Query("select s.showTimeID from ShowTime s")
+    List<Integer> findAllShowTimeIds();
+
+    // Showtimes starting in [from, to), for loading only the current schedule into SeatManager; canceled ones have no sales
+    @Query("select s.showTimeID as showTimeID, s.showTimeDateTime as showTimeDateTime, s.theaterNumber as theaterNumber " +
+            "from ShowTime s where s.showTimeDateTime >= :from and s.showTimeDateTime < :to and s.isCanceled = false")
+    List<ShowTimeSlot> findSlotsStartingBetween(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    @Query("select s.showTimeID as showTimeID, s.showTimeDateTime as showTimeDateTime, s.theaterNumber as theaterNumber " +
+            "from ShowTime s where s.showTimeID = :showTimeId and s.isCanceled = false")
+    Optional<ShowTimeSlot> findOpenSlot(@Param("showTimeId") Integer showTimeId);
+
+    @Query("select s.showTimeID as showTimeID, s.showTimeDateTime as showTimeDateTime, s.theaterNumber as theaterNumber " +
+            "from ShowTime s where s.showTimeID in :showTimeIds")
+    List<ShowTimeSlot> findSlots(@Param("showTimeIds") Collection<Integer> showTimeIds);
+
+    // Atomic in-database counter updates; no read-modify-write of the ShowTime entity, so concurrent bookings never lose an update
+    @Modifying
+    @Query("update ShowTime s set s.availableSeats = s.availableSeats - :count " +
+            "where s.showTimeID = :showTimeId and s.availableSeats >= :count")
+    int decrementAvailableSeats(@Param("showTimeId") Integer showTimeId, @Param("count") int count);
+
+    @Modifying
+    @Query("update ShowTime s set s.availableSeats = s.availableSeats + :count " +
+            "where s.showTimeID = :showTimeId and s.availableSeats + :count <= s.totalSeats")
+    int incrementAvailableSeats(@Param("showTimeId") Integer showTimeId, @Param("count") int count);
+
+    // Cancels a screening: no seats are left for sale, so bookings still waiting for this row fail their decrement.
+    // Also takes the row lock that every booking and cancellation of the showtime needs before it can commit
+    @Modifying
+    @Query("update ShowTime s set s.isCanceled = true, s.availableSeats = 0 where s.showTimeID = :showTimeId")
+    int markCanceled(@Param("showTimeId") Integer showTimeId);
+
+    interface ShowTimeSlot {
+        Integer getShowTimeID();
+        LocalDateTime getShowTimeDateTime();
+        Integer getTheaterNumber();
+    }
+
+    interface BookingDetails {
+        BigDecimal getPrice();
+        String getMovieTitle();
+        LocalDateTime getShowTimeDateTime();
+    }
+
+    interface ShowTimeListing {
+        Integer getShowTimeID();
+        LocalDateTime getShowTimeDateTime();
+        Integer getTheaterNumber();
+        Integer getTotalSeats();
+        Integer getAvailableSeats();
+    }
+
+    interface ShowTimeSummary {
+        Integer getShowTimeID();
+        LocalDateTime getShowTimeDateTime();
+        Integer getTheaterNumber();
+        Integer getMovieID();
+        String getMovieTitle();
+    }
+}
@@ -3,10 +3,66 @@ package com.movieticketsystem.movieticketapp.repository;
 
 import com.movieticketsystem.movieticketapp.model.Ticket;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
 @Repository
-public interface TicketRepository extends JpaRepository<Ticket, Integer> {
+public interface TicketRepository extends JpaRepository<Ticket, Integer>, TicketRepositoryCustom {
     // Find a ticket by showtime and seat, ensuring it's not canceled
     Ticket findByShowTimeShowTimeIDAndSeatSeatIDAndIsCanceledFalse(Integer showTimeID, Integer seatID);
-}
\ No newline at end of file
+
+    // Seat IDs holding an active ticket for a showtime, streamed without loading Ticket entities
+    @Query("select t.seat.seatID from Ticket t where t.showTime.showTimeID = :showTimeId and t.isCanceled = false")
+    Stream<Integer> streamActiveSeatIdsByShowTime(@Param("showTimeId") Integer showTimeId);
+
+    // Active tickets of an earlier booking request, with their seats, for answering a repeated idempotency key
+    @Query("select t from Ticket t join fetch t.seat where t.idempotencyKey = :key and t.isCanceled = false")
+    List<Ticket> findActiveByIdempotencyKey(@Param("key") String idempotencyKey);
+
+    // A ticket with its seat in one statement, for cancelling without a lazy seat load
+    @Query("select t from Ticket t join fetch t.seat where t.ticketID = :ticketId")
+    Optional<Ticket> findWithSeatById(@Param("ticketId") Integer ticketId);
+
+    // Flips a ticket to canceled only if it is still active; returns 0 when another request canceled it first.
+    // Setting the cancel token frees the seat in the unique key, so it can be sold again
+    @Modifying
+    @Query("update Ticket t set t.isCanceled = true, t.cancelToken = t.ticketID where t.ticketID = :ticketId and t.isCanceled = false")
+    int markCanceled(@Param("ticketId") Integer ticketId);
+
+    // Active tickets of a showtime with what a refund needs, in ticket order and without loading entities
+    @Query("select t.ticketID as ticketID, t.seat.seatID as seatID, t.customerName as customerName, t.price as price " +
+            "from Ticket t where t.showTime.showTimeID = :showTimeId and t.isCanceled = false order by t.ticketID")
+    List<RefundableTicket> findActiveForRefund(@Param("showTimeId") Integer showTimeId);
+
+    // Cancels every active ticket of a showtime in one statement, freeing their seats in the unique key like markCanceled,
+    // and marks them refund-pending until acknowledgeRefunds
+    @Modifying
+    @Query("update Ticket t set t.isCanceled = true, t.cancelToken = t.ticketID, t.refundPending = true " +
+            "where t.showTime.showTimeID = :showTimeId and t.isCanceled = false")
+    int markCanceledByShowTime(@Param("showTimeId") Integer showTimeId);
+
+    // Tickets of a showtime canceled by markCanceledByShowTime whose refund has not been acknowledged, in ticket order
+    @Query("select t.ticketID as ticketID, t.seat.seatID as seatID, t.customerName as customerName, t.price as price " +
+            "from Ticket t where t.showTime.showTimeID = :showTimeId and t.refundPending = true order by t.ticketID")
+    List<RefundableTicket> findRefundPending(@Param("showTimeId") Integer showTimeId);
+
+    // Clears the refund-pending mark of tickets whose refund has been handed over
+    @Modifying
+    @Query("update Ticket t set t.refundPending = false where t.ticketID in :ticketIds and t.refundPending = true")
+    int acknowledgeRefunds(@Param("ticketIds") Collection<Integer> ticketIds);
+
+    interface RefundableTicket {
+        Integer getTicketID();
+        Integer getSeatID();
+        String getCustomerName();
+        BigDecimal getPrice();
+    }
+}
@@ -0,0 +1,18 @@
+package com.movieticketsystem.movieticketapp.repository;
+
+import com.movieticketsystem.movieticketapp.model.Ticket;
+
+import java.util.List;
+
+// Ticket writes that Spring Data cannot derive; implemented by TicketRepositoryCustomImpl
+public interface TicketRepositoryCustom {
+
+    /**
+     * Inserts new, active tickets and sets their generated IDs. IDENTITY ids rule out JDBC batching of entity
+     * inserts, so several tickets go in as multi-row INSERTs (up to 200 rows each), after which one query per
+     * showtime reads the IDs back through the unique key on (ShowTimeID, SeatID) of active tickets.
+     * A single ticket is persisted as usual, as its INSERT already returns the ID.
+     * The inserted tickets are not attached to the persistence context.
+     */
+    void insertAll(List<Ticket> tickets);
+}
@@ -0,0 +1,73 @@
+package com.movieticketsystem.movieticketapp.repository;
+
+import com.movieticketsystem.movieticketapp.model.Ticket;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.query.NativeQuery;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+class TicketRepositoryCustomImpl implements TicketRepositoryCustom {
+
+    // SQL Server allows 2100 parameters per statement; 7 per row keeps well below that
+    private static final int ROWS_PER_INSERT = 200;
+    private static final String INSERT_PREFIX =
+            "INSERT INTO Tickets (ShowTimeID, SeatID, BookingTime, CustomerName, Price, IsCanceled, IdempotencyKey) VALUES ";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public void insertAll(List<Ticket> tickets) {
+        if (tickets.size() <= 1) {
+            tickets.forEach(entityManager::persist);
+            return;
+        }
+
+        for (int from = 0; from < tickets.size(); from += ROWS_PER_INSERT) {
+            List<Ticket> chunk = tickets.subList(from, Math.min(from + ROWS_PER_INSERT, tickets.size()));
+            StringBuilder sql = new StringBuilder(INSERT_PREFIX.length() + chunk.size() * 24).append(INSERT_PREFIX);
+            for (int i = 0; i < chunk.size(); i++) {
+                sql.append(i == 0 ? "(?, ?, ?, ?, ?, ?, ?)" : ", (?, ?, ?, ?, ?, ?, ?)");
+            }
+            // Typed binding, so null names and keys are sent as strings rather than of unknown type
+            NativeQuery<?> insert = entityManager.createNativeQuery(sql.toString()).unwrap(NativeQuery.class);
+            int position = 1;
+            for (Ticket ticket : chunk) {
+                insert.setParameter(position++, ticket.getShowTime().getShowTimeID(), Integer.class);
+                insert.setParameter(position++, ticket.getSeat().getSeatID(), Integer.class);
+                insert.setParameter(position++, ticket.getBookingTime(), LocalDateTime.class);
+                insert.setParameter(position++, ticket.getCustomerName(), String.class);
+                insert.setParameter(position++, ticket.getPrice(), BigDecimal.class);
+                insert.setParameter(position++, false, Boolean.class);
+                insert.setParameter(position++, ticket.getIdempotencyKey(), String.class);
+            }
+            insert.executeUpdate();
+        }
+
+        Map<Integer, Map<Integer, Ticket>> bySeatPerShowTime = new LinkedHashMap<>();
+        for (Ticket ticket : tickets) {
+            bySeatPerShowTime.computeIfAbsent(ticket.getShowTime().getShowTimeID(), k -> new LinkedHashMap<>())
+                    .put(ticket.getSeat().getSeatID(), ticket);
+        }
+        bySeatPerShowTime.forEach((showTimeId, bySeat) -> {
+            List<Object[]> ids = entityManager.createQuery("select t.seat.seatID, t.ticketID from Ticket t " +
+                            "where t.showTime.showTimeID = :showTimeId and t.isCanceled = false and t.seat.seatID in :seatIds",
+                            Object[].class)
+                    .setParameter("showTimeId", showTimeId)
+                    .setParameter("seatIds", bySeat.keySet())
+                    .getResultList();
+            if (ids.size() != bySeat.size()) {
+                throw new IllegalStateException("Inserted " + bySeat.size() + " tickets for showtime " + showTimeId
+                        + " but found " + ids.size());
+            }
+            for (Object[] id : ids) {
+                bySeat.get((Integer) id[0]).setTicketID((Integer) id[1]);
+            }
+        });
+    }
+}
@@ -0,0 +1,363 @@
+package com.movieticketsystem.movieticketapp.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Per-showtime waiting room for on-sale spikes.
+ *
+ * Every showtime counts seat-page visits per second. Once a showtime passes {@code app.admission.demand-threshold},
+ * its waiting room opens: at most {@code app.admission.max-active} sessions are admitted at a time, and everyone else
+ * waits in a FIFO queue and polls for their position. An admission lasts {@code app.admission.token-ttl} or until the
+ * session books; waiters that stop polling are skipped. A session that holds seats of the showtime (on this node) is
+ * admitted without queueing, so a room opening in the middle of its checkout does not let its holds run out while it
+ * waits. The room closes again when the queue is empty and demand has
+ * stayed below the threshold for {@code app.admission.cooldown}.
+ * Only open rooms have the {@code admission.waiting} and {@code admission.active} gauges; a showtime's demand counter
+ * is dropped when SeatManager evicts the showtime.
+ */
+@Component
+public class AdmissionManager implements SeatTransitionListener {
+
+    private static final Logger log = LoggerFactory.getLogger(AdmissionManager.class);
+
+    // Left on a released admission so the session can still load its booking confirmation
+    private static final long RELEASE_GRACE_NANOS = Duration.ofSeconds(30).toNanos();
+
+    private final boolean enabled;
+    private final int demandThreshold;
+    private final int maxActive;
+    private final long tokenTtlNanos;
+    private final long abandonTimeoutNanos;
+    private final long cooldownNanos;
+    private final SeatHoldManager seatHoldManager;
+    private final MeterRegistry meterRegistry;
+
+    private final ConcurrentHashMap<Integer, WaitingRoom> rooms = new ConcurrentHashMap<>();
+
+    @Autowired
+    public AdmissionManager(@Value("${app.admission.enabled:true}") boolean enabled,
+                            @Value("${app.admission.demand-threshold:200}") int demandThreshold,
+                            @Value("${app.admission.max-active:500}") int maxActive,
+                            @Value("${app.admission.token-ttl:10m}") Duration tokenTtl,
+                            @Value("${app.admission.abandon-timeout:30s}") Duration abandonTimeout,
+                            @Value("${app.admission.cooldown:2m}") Duration cooldown,
+                            SeatManager seatManager, SeatHoldManager seatHoldManager, MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.demandThreshold = demandThreshold;
+        this.maxActive = maxActive;
+        this.tokenTtlNanos = tokenTtl.toNanos();
+        this.abandonTimeoutNanos = abandonTimeout.toNanos();
+        this.cooldownNanos = cooldown.toNanos();
+        this.seatHoldManager = seatHoldManager;
+        this.meterRegistry = meterRegistry;
+        seatManager.addTransitionListener(this);
+    }
+
+    /**
+     * Records a seat-page visit and decides whether the session may see the seat map.
+     * Call only for showtimes known to exist, since every visited showtime gets a demand counter.
+     *
+     * @return true if the session is admitted (or no waiting room is open), false if it has to wait.
+     */
+    public boolean enter(Integer showTimeId, String sessionId) {
+        if (!enabled) {
+            return true;
+        }
+        WaitingRoom room = rooms.computeIfAbsent(showTimeId, WaitingRoom::new);
+        room.recordVisit();
+        return room.enter(sessionId);
+    }
+
+    /**
+     * Checks that the session may book or hold seats of the showtime, without joining the queue.
+     */
+    public boolean isAdmitted(Integer showTimeId, String sessionId) {
+        WaitingRoom room = enabled ? rooms.get(showTimeId) : null;
+        return room == null || room.isAdmitted(sessionId);
+    }
+
+    /**
+     * Position of a waiting session: 0 once it is admitted (or there is no waiting room), -1 if it is not queued.
+     * Polling also keeps the session's place in the queue.
+     */
+    public long position(Integer showTimeId, String sessionId) {
+        WaitingRoom room = enabled ? rooms.get(showTimeId) : null;
+        return room == null ? 0 : room.position(sessionId);
+    }
+
+    /**
+     * Shortens the session's admission to a brief grace period, e.g. after it has booked,
+     * so its slot goes to the next waiter soon.
+     */
+    public void release(Integer showTimeId, String sessionId) {
+        WaitingRoom room = enabled ? rooms.get(showTimeId) : null;
+        if (room != null) {
+            room.release(sessionId);
+        }
+    }
+
+    /**
+     * Expires admissions, moves waiters up and closes rooms whose spike is over.
+     */
+    @Scheduled(fixedDelayString = "${app.admission.sweep-interval-ms:1000}")
+    public void sweep() {
+        rooms.values().forEach(WaitingRoom::sweep);
+    }
+
+    @Override
+    public void onSeatChanged(int showTimeId, int seatId) {
+    }
+
+    @Override
+    public void onShowTimeEvicted(int showTimeId) {
+        WaitingRoom room = rooms.remove(showTimeId);
+        if (room != null) {
+            room.close();
+        }
+    }
+
+    private final class WaitingRoom {
+        private final int showTimeId;
+        private final ReentrantLock lock = new ReentrantLock();
+
+        // Fixed one-second window of seat-page visits, reset by CAS on the first visit of a new second
+        private final AtomicLong windowSecond = new AtomicLong();
+        private final AtomicLong windowVisits = new AtomicLong();
+        private volatile long lastBusyNanos;
+        private volatile boolean open;
+
+        // Guarded by lock
+        private final ArrayDeque<Waiter> queue = new ArrayDeque<>();
+        private final Map<String, Waiter> waitersBySession = new HashMap<>();
+        private final Map<String, Long> admittedUntil = new HashMap<>();
+        private long nextTicket;
+        private long lastAdmittedTicket;
+        // Registered while the room is open
+        private Gauge waitingGauge;
+        private Gauge activeGauge;
+        // Set once the showtime is evicted; a visit still holding this room must not open it again
+        private boolean retired;
+
+        private WaitingRoom(Integer showTimeId) {
+            this.showTimeId = showTimeId;
+        }
+
+        void recordVisit() {
+            long second = System.nanoTime() / 1_000_000_000L;
+            long current = windowSecond.get();
+            if (current != second && windowSecond.compareAndSet(current, second)) {
+                windowVisits.set(0);
+            }
+            if (windowVisits.incrementAndGet() >= demandThreshold) {
+                lastBusyNanos = System.nanoTime();
+                if (!open) {
+                    openRoom();
+                }
+            }
+        }
+
+        boolean enter(String sessionId) {
+            if (!open) {
+                return true;
+            }
+            long now = System.nanoTime();
+            lock.lock();
+            try {
+                if (!open || isAdmittedLocked(sessionId, now)) {
+                    return true;
+                }
+                Waiter waiter = waitersBySession.get(sessionId);
+                if (waiter == null) {
+                    waiter = new Waiter(sessionId, ++nextTicket, now);
+                    waitersBySession.put(sessionId, waiter);
+                    queue.addLast(waiter);
+                } else {
+                    waiter.lastSeenNanos = now;
+                }
+                admitWaiters(now);
+                return isAdmittedLocked(sessionId, now);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        boolean isAdmitted(String sessionId) {
+            if (!open) {
+                return true;
+            }
+            lock.lock();
+            try {
+                return !open || isAdmittedLocked(sessionId, System.nanoTime());
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        long position(String sessionId) {
+            if (!open) {
+                return 0;
+            }
+            long now = System.nanoTime();
+            lock.lock();
+            try {
+                if (!open || isAdmittedLocked(sessionId, now)) {
+                    return 0;
+                }
+                Waiter waiter = waitersBySession.get(sessionId);
+                if (waiter == null) {
+                    return -1;
+                }
+                waiter.lastSeenNanos = now;
+                admitWaiters(now);
+                if (isAdmittedLocked(sessionId, now)) {
+                    return 0;
+                }
+                // Abandoned tickets ahead are skipped when reached, so this is an upper bound
+                return waiter.ticket - lastAdmittedTicket;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void release(String sessionId) {
+            if (!open) {
+                return;
+            }
+            lock.lock();
+            try {
+                long graceUntil = System.nanoTime() + RELEASE_GRACE_NANOS;
+                admittedUntil.computeIfPresent(sessionId, (id, until) -> until - graceUntil > 0 ? graceUntil : until);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void sweep() {
+            if (!open) {
+                return;
+            }
+            long now = System.nanoTime();
+            lock.lock();
+            try {
+                admitWaiters(now);
+                if (queue.isEmpty() && now - lastBusyNanos > cooldownNanos) {
+                    closeLocked();
+                    log.info("Waiting room for showtime {} closed", showTimeId);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Closes the room for good, because its showtime was evicted.
+         */
+        void close() {
+            lock.lock();
+            try {
+                retired = true;
+                closeLocked();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void openRoom() {
+            lock.lock();
+            try {
+                if (!open && !retired) {
+                    String tag = String.valueOf(showTimeId);
+                    waitingGauge = Gauge.builder("admission.waiting", this, room -> room.open ? room.queue.size() : 0)
+                            .description("Sessions waiting for admission to a showtime")
+                            .tag("showtime", tag)
+                            .register(meterRegistry);
+                    activeGauge = Gauge.builder("admission.active", this, room -> room.open ? room.admittedUntil.size() : 0)
+                            .description("Sessions currently admitted to a showtime's seat map")
+                            .tag("showtime", tag)
+                            .register(meterRegistry);
+                    open = true;
+                    log.atInfo().addKeyValue("showTimeId", showTimeId)
+                            .log("Waiting room for showtime {} opened: {} visits/s, {} sessions admitted at a time",
+                                    showTimeId, demandThreshold, maxActive);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void closeLocked() {
+            open = false;
+            queue.clear();
+            admittedUntil.clear();
+            waitersBySession.clear();
+            if (waitingGauge != null) {
+                meterRegistry.remove(waitingGauge);
+                meterRegistry.remove(activeGauge);
+                waitingGauge = null;
+                activeGauge = null;
+            }
+        }
+
+        private boolean isAdmittedLocked(String sessionId, long now) {
+            Long until = admittedUntil.get(sessionId);
+            if (until != null && now - until < 0) {
+                return true;
+            }
+            // Already checking out: admitted on top of max-active rather than queued behind its own holds
+            if (!seatHoldManager.heldSeatIds(showTimeId, sessionId).isEmpty()) {
+                admittedUntil.put(sessionId, now + tokenTtlNanos);
+                Waiter waiter = waitersBySession.remove(sessionId);
+                if (waiter != null) {
+                    queue.remove(waiter);
+                }
+                return true;
+            }
+            return false;
+        }
+
+        private void admitWaiters(long now) {
+            for (Iterator<Map.Entry<String, Long>> it = admittedUntil.entrySet().iterator(); it.hasNext(); ) {
+                if (now - it.next().getValue() >= 0) {
+                    it.remove();
+                }
+            }
+            while (admittedUntil.size() < maxActive && !queue.isEmpty()) {
+                Waiter next = queue.pollFirst();
+                waitersBySession.remove(next.sessionId);
+                lastAdmittedTicket = next.ticket;
+                if (now - next.lastSeenNanos > abandonTimeoutNanos) {
+                    continue; // stopped polling; give the slot to the next in line
+                }
+                admittedUntil.put(next.sessionId, now + tokenTtlNanos);
+            }
+        }
+    }
+
+    private static final class Waiter {
+        private final String sessionId;
+        private final long ticket;
+        private long lastSeenNanos;
+
+        private Waiter(String sessionId, long ticket, long lastSeenNanos) {
+            this.sessionId = sessionId;
+            this.ticket = ticket;
+            this.lastSeenNanos = lastSeenNanos;
+        }
+    }
+}
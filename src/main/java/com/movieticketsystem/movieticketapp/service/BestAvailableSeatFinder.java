@@ -0,0 +1,250 @@
+package com.movieticketsystem.movieticketapp.service;
+
+import com.movieticketsystem.movieticketapp.model.Seat;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntPredicate;
+
+/**
+ * Finds and claims blocks of adjacent free seats ("best available") so groups do not have to pick seats one by one.
+ *
+ * Every showtime that has been searched keeps a hall index: one free-seat bitmap per row plus the row's
+ * longest free run, so rows that cannot fit the group are skipped without scanning. The index is built from
+ * the seat map once and then kept current through {@link SeatTransitionListener} events, re-checking only the
+ * changed seat's row. Blocks are scored by their distance from the centre of the hall (row depth and
+ * horizontal offset) and claimed with {@link SeatManager#tryBookSeats}; a block lost to a concurrent booking
+ * is skipped and the next best one is tried, up to {@code app.seat-finder.max-attempts} times.
+ */
+@Component
+public class BestAvailableSeatFinder implements SeatTransitionListener {
+
+    private static final Logger log = LoggerFactory.getLogger(BestAvailableSeatFinder.class);
+
+    private final SeatManager seatManager;
+    private final int maxAttempts;
+    private final ConcurrentHashMap<Integer, HallIndex> halls = new ConcurrentHashMap<>();
+
+    @Autowired
+    public BestAvailableSeatFinder(SeatManager seatManager,
+                                   @Value("${app.seat-finder.max-attempts:5}") int maxAttempts) {
+        this.seatManager = seatManager;
+        this.maxAttempts = maxAttempts;
+        seatManager.addTransitionListener(this);
+    }
+
+    /**
+     * Best block of {@code count} adjacent free seats in one row, without claiming it.
+     *
+     * @return seat IDs ordered by seat number, or an empty list if no row has enough adjacent free seats.
+     */
+    public List<Integer> findBestAvailable(Integer showTimeId, int count) {
+        HallIndex hall = hall(showTimeId);
+        return hall != null && count > 0 ? hall.bestBlock(count, Collections.emptySet()) : Collections.emptyList();
+    }
+
+    /**
+     * Claims the best block of {@code count} adjacent free seats in SeatManager, all or nothing.
+     * The caller owns the claim (persist or release it), as after {@link SeatManager#tryBookSeats}.
+     *
+     * @return the claimed seat IDs, or an empty list if no block could be claimed.
+     */
+    public List<Integer> claimBestAvailable(Integer showTimeId, int count) {
+        HallIndex hall = hall(showTimeId);
+        if (hall == null || count <= 0) {
+            return Collections.emptyList();
+        }
+        Set<Integer> lostFirstSeats = new HashSet<>();
+        for (int attempt = 0; attempt < maxAttempts; attempt++) {
+            List<Integer> block = hall.bestBlock(count, lostFirstSeats);
+            if (block.isEmpty()) {
+                return block;
+            }
+            if (seatManager.tryBookSeats(showTimeId, block)) {
+                return block;
+            }
+            // Taken between search and claim; its events may not have reached the index yet, so skip it explicitly
+            lostFirstSeats.add(block.get(0));
+        }
+        log.debug("No block of {} seats for showtime {} could be claimed in {} attempts.", count, showTimeId, maxAttempts);
+        return Collections.emptyList();
+    }
+
+    @Override
+    public void onSeatChanged(int showTimeId, int seatId) {
+        HallIndex hall = halls.get(showTimeId);
+        if (hall != null) {
+            hall.refresh(seatId, seatManager.isSeatAvailable(showTimeId, seatId));
+        }
+    }
+
+    @Override
+    public void onShowTimeReloaded(int showTimeId) {
+        halls.remove(showTimeId); // seat layout may have changed; rebuilt on the next search
+    }
+
+    @Override
+    public void onShowTimeEvicted(int showTimeId) {
+        halls.remove(showTimeId);
+    }
+
+    private HallIndex hall(Integer showTimeId) {
+        HallIndex hall = halls.get(showTimeId);
+        if (hall != null) {
+            return hall;
+        }
+        SeatMapSnapshot seatMap = seatManager.getSeatMap(showTimeId);
+        if (seatMap.isEmpty()) {
+            return null;
+        }
+        HallIndex built = new HallIndex(seatMap);
+        HallIndex raced = halls.putIfAbsent(showTimeId, built);
+        if (raced != null) {
+            return raced;
+        }
+        // Changes between the snapshot and publishing the index were not seen by the listener: re-read them once
+        built.resync(seatId -> seatManager.isSeatAvailable(showTimeId, seatId));
+        return built;
+    }
+
+    /**
+     * Free-seat bitmap per row of one hall, with the longest free run of every row.
+     * Row positions follow seat numbers, so a missing number (an aisle) is a permanently taken position.
+     */
+    private static final class HallIndex {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final int[][] seatIdsByPosition;
+        private final long[][] freeBits;
+        private final int[] longestRun;
+        // SeatID -> row << 16 | position
+        private final Map<Integer, Integer> locations = new HashMap<>();
+
+        HallIndex(SeatMapSnapshot seatMap) {
+            List<SeatMapSnapshot.Row> rows = seatMap.getRows();
+            seatIdsByPosition = new int[rows.size()][];
+            freeBits = new long[rows.size()][];
+            longestRun = new int[rows.size()];
+            for (int r = 0; r < rows.size(); r++) {
+                List<SeatManager.SeatStatus> seats = rows.get(r).getSeats();
+                int first = seats.get(0).getSeat().getSeatNumber();
+                int width = seats.get(seats.size() - 1).getSeat().getSeatNumber() - first + 1;
+                seatIdsByPosition[r] = new int[width];
+                freeBits[r] = new long[(width + 63) >>> 6];
+                for (SeatManager.SeatStatus status : seats) {
+                    Seat seat = status.getSeat();
+                    int position = seat.getSeatNumber() - first;
+                    seatIdsByPosition[r][position] = seat.getSeatID();
+                    locations.put(seat.getSeatID(), r << 16 | position);
+                    if (!status.isBooked()) {
+                        freeBits[r][position >>> 6] |= 1L << position;
+                    }
+                }
+                longestRun[r] = longestRun(r);
+            }
+        }
+
+        void resync(IntPredicate isAvailable) {
+            for (Integer seatId : locations.keySet()) {
+                refresh(seatId, isAvailable.test(seatId));
+            }
+        }
+
+        void refresh(int seatId, boolean available) {
+            Integer location = locations.get(seatId);
+            if (location == null) {
+                return;
+            }
+            int row = location >>> 16;
+            int position = location & 0xFFFF;
+            lock.lock();
+            try {
+                long before = freeBits[row][position >>> 6];
+                long after = available ? before | 1L << position : before & ~(1L << position);
+                if (after != before) {
+                    freeBits[row][position >>> 6] = after;
+                    longestRun[row] = longestRun(row);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Best-scoring block of {@code count} free adjacent seats whose first seat is not in {@code excludedFirstSeats}.
+         */
+        List<Integer> bestBlock(int count, Set<Integer> excludedFirstSeats) {
+            int bestRow = -1;
+            int bestStart = -1;
+            double bestScore = Double.MAX_VALUE;
+            double middleRow = (seatIdsByPosition.length - 1) / 2.0;
+            lock.lock();
+            try {
+                for (int r = 0; r < seatIdsByPosition.length; r++) {
+                    double rowDistance = Math.abs(r - middleRow);
+                    if (longestRun[r] < count || rowDistance >= bestScore) {
+                        continue; // cannot fit the group, or cannot beat the best block even at the row centre
+                    }
+                    // Ideal first position centres the block in the row
+                    double idealStart = (seatIdsByPosition[r].length - count) / 2.0;
+                    int width = seatIdsByPosition[r].length;
+                    int position = 0;
+                    while (position < width) {
+                        if (!isFree(r, position)) {
+                            position++;
+                            continue;
+                        }
+                        int runStart = position;
+                        while (position < width && isFree(r, position)) {
+                            position++;
+                        }
+                        // Runs are a row wide at most, so every placement inside the run is scored
+                        for (int start = runStart; start <= position - count; start++) {
+                            double score = rowDistance + Math.abs(start - idealStart);
+                            if (score < bestScore && !excludedFirstSeats.contains(seatIdsByPosition[r][start])) {
+                                bestScore = score;
+                                bestRow = r;
+                                bestStart = start;
+                            }
+                        }
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+            if (bestRow < 0) {
+                return Collections.emptyList();
+            }
+            List<Integer> block = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                block.add(seatIdsByPosition[bestRow][bestStart + i]);
+            }
+            return block;
+        }
+
+        private boolean isFree(int row, int position) {
+            return (freeBits[row][position >>> 6] & 1L << position) != 0;
+        }
+
+        private int longestRun(int row) {
+            int longest = 0;
+            int current = 0;
+            for (int position = 0; position < seatIdsByPosition[row].length; position++) {
+                current = isFree(row, position) ? current + 1 : 0;
+                longest = Math.max(longest, current);
+            }
+            return longest;
+        }
+    }
+}
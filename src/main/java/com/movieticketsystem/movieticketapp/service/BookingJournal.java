@@ -0,0 +1,331 @@
+package com.movieticketsystem.movieticketapp.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * Durable, append-only journal of confirmed bookings for the write-behind persistence mode.
+ *
+ * The journal is a fixed-size memory-mapped file: a small header holding the offset up to which
+ * records have been written to SQL, followed by length + CRC framed records and a zero terminator.
+ * Appenders share an msync through leader-based group commit: whoever flushes first makes every
+ * record appended so far durable, and the other waiters return without forcing again.
+ * Once everything has been drained the file is rewound, so its size only bounds the backlog.
+ */
+@Component
+@ConditionalOnProperty(name = "app.booking.write-behind.enabled", havingValue = "true")
+public class BookingJournal implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(BookingJournal.class);
+
+    private static final int MAGIC = 0x424A524E; // "BJRN"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 64;
+    private static final int DRAINED_OFFSET_POSITION = 8;
+    private static final int RECORD_HEADER_SIZE = 8; // int length + int crc
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int capacity;
+
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private final Condition appended = appendLock.newCondition();
+    private final Condition drained = appendLock.newCondition();
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    // Physical offsets inside the mapped file, guarded by appendLock
+    private int writeOffset;
+    private int drainedOffset;
+    // Logical (never rewinding) positions, used to decide whether an append is already durable
+    private long logicalBase;
+    private volatile long flushedLogical;
+
+    @Autowired
+    public BookingJournal(@Value("${app.booking.write-behind.journal-path:data/booking.journal}") Path path,
+                          @Value("${app.booking.write-behind.journal-size-mb:64}") int sizeMb) throws IOException {
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        this.capacity = sizeMb * 1024 * 1024;
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        recover();
+    }
+
+    /**
+     * Appends a booking. The record is not durable until {@link #awaitDurable(long)} returns for its position.
+     *
+     * @return the logical end position of the record, or -1 if the journal is full.
+     */
+    public long append(JournalEntry entry) {
+        byte[] payload = entry.encode();
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+
+        appendLock.lock();
+        try {
+            if (writeOffset + RECORD_HEADER_SIZE + payload.length + Integer.BYTES > capacity) {
+                return -1;
+            }
+            buffer.putInt(writeOffset + RECORD_HEADER_SIZE + payload.length, 0); // terminator first, record last
+            buffer.put(writeOffset + RECORD_HEADER_SIZE, payload);
+            buffer.putInt(writeOffset + Integer.BYTES, (int) crc.getValue());
+            buffer.putInt(writeOffset, payload.length);
+            writeOffset += RECORD_HEADER_SIZE + payload.length;
+            appended.signalAll();
+            return logicalBase + writeOffset;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Blocks until the journal is forced to disk up to {@code logicalPosition}.
+     * Concurrent callers are grouped behind a single force.
+     */
+    public void awaitDurable(long logicalPosition) {
+        if (flushedLogical >= logicalPosition) {
+            return;
+        }
+        flushLock.lock();
+        try {
+            if (flushedLogical >= logicalPosition) {
+                return; // the previous leader's force covered this record
+            }
+            long target;
+            appendLock.lock();
+            try {
+                target = logicalBase + writeOffset;
+            } finally {
+                appendLock.unlock();
+            }
+            buffer.force();
+            flushedLogical = Math.max(flushedLogical, target);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Reads up to {@code maxRecords} records that have not been drained yet. Only the single drain thread calls this.
+     */
+    public Batch readBatch(int maxRecords) {
+        int start;
+        int end;
+        appendLock.lock();
+        try {
+            start = drainedOffset;
+            end = writeOffset;
+        } finally {
+            appendLock.unlock();
+        }
+
+        List<JournalEntry> entries = new ArrayList<>();
+        int position = start;
+        ByteBuffer view = buffer.duplicate();
+        while (position < end && entries.size() < maxRecords) {
+            int length = view.getInt(position);
+            byte[] payload = new byte[length];
+            view.get(position + RECORD_HEADER_SIZE, payload);
+            entries.add(JournalEntry.decode(payload));
+            position += RECORD_HEADER_SIZE + length;
+        }
+        return new Batch(entries, position);
+    }
+
+    /**
+     * Waits until something new is appended beyond the drained offset, or the timeout elapses.
+     */
+    public void awaitAppend(long timeoutMillis) throws InterruptedException {
+        appendLock.lock();
+        try {
+            if (writeOffset == drainedOffset) {
+                appended.await(timeoutMillis, TimeUnit.MILLISECONDS);
+            }
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Records that every entry before {@code endOffset} is committed in SQL, rewinding the file when fully drained.
+     */
+    public void markDrained(int endOffset) {
+        appendLock.lock();
+        try {
+            drainedOffset = endOffset;
+            if (drainedOffset == writeOffset && writeOffset > capacity / 2) {
+                // Everything is in SQL: rewind so the journal never runs out of room under steady load
+                long logicalEnd = logicalBase + writeOffset;
+                logicalBase = logicalEnd - HEADER_SIZE;
+                flushedLogical = Math.max(flushedLogical, logicalEnd);
+                writeOffset = HEADER_SIZE;
+                drainedOffset = HEADER_SIZE;
+                buffer.putInt(HEADER_SIZE, 0);
+            }
+            buffer.putInt(DRAINED_OFFSET_POSITION, drainedOffset);
+            buffer.force(0, HEADER_SIZE + Integer.BYTES);
+            drained.signalAll();
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Blocks until every record appended before this call has been written to SQL, or the timeout elapses.
+     *
+     * @return true if those records are drained.
+     */
+    public boolean awaitDrained(long timeoutMillis) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        appendLock.lock();
+        try {
+            long target = logicalBase + writeOffset;
+            while (logicalBase + drainedOffset < target) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+                drained.awaitNanos(remaining);
+            }
+            return true;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    public boolean isEmpty() {
+        appendLock.lock();
+        try {
+            return drainedOffset == writeOffset;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    private void recover() {
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(Integer.BYTES) != VERSION) {
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(Integer.BYTES, VERSION);
+            buffer.putInt(DRAINED_OFFSET_POSITION, HEADER_SIZE);
+            buffer.putInt(HEADER_SIZE, 0);
+            buffer.force();
+        }
+        drainedOffset = buffer.getInt(DRAINED_OFFSET_POSITION);
+        if (drainedOffset < HEADER_SIZE || drainedOffset >= capacity) {
+            drainedOffset = HEADER_SIZE;
+        }
+
+        // Records after the drained offset survived a crash or shutdown; the first torn or empty record ends the log
+        int position = drainedOffset;
+        CRC32 crc = new CRC32();
+        while (position + RECORD_HEADER_SIZE <= capacity) {
+            int length = buffer.getInt(position);
+            if (length <= 0 || position + RECORD_HEADER_SIZE + length > capacity) {
+                break;
+            }
+            byte[] payload = new byte[length];
+            buffer.get(position + RECORD_HEADER_SIZE, payload);
+            crc.reset();
+            crc.update(payload);
+            if ((int) crc.getValue() != buffer.getInt(position + Integer.BYTES)) {
+                break;
+            }
+            position += RECORD_HEADER_SIZE + length;
+        }
+        writeOffset = position;
+        if (writeOffset + Integer.BYTES <= capacity) {
+            buffer.putInt(writeOffset, 0);
+        }
+        logicalBase = 0;
+        flushedLogical = writeOffset;
+        if (writeOffset > drainedOffset) {
+            log.info("Booking journal has {} bytes of undrained bookings to replay.", writeOffset - drainedOffset);
+        }
+    }
+
+    @Override
+    public void destroy() throws IOException {
+        buffer.force();
+        channel.close();
+    }
+
+    /**
+     * Records read from the journal together with the offset just past the last one.
+     */
+    public record Batch(List<JournalEntry> entries, int endOffset) {
+    }
+
+    /**
+     * One confirmed booking: one or more seats of a showtime for one customer.
+     * The idempotency key (may be null) is encoded last, so records written before it existed still decode.
+     */
+    public record JournalEntry(int showTimeId, int[] seatIds, String customerName, BigDecimal price,
+                               LocalDateTime bookingTime, String idempotencyKey) {
+
+        byte[] encode() {
+            byte[] name = customerName.getBytes(StandardCharsets.UTF_8);
+            byte[] priceText = price.toPlainString().getBytes(StandardCharsets.US_ASCII);
+            byte[] key = idempotencyKey != null ? idempotencyKey.getBytes(StandardCharsets.UTF_8) : new byte[0];
+            ByteBuffer out = ByteBuffer.allocate(4 + 8 + 4 + 4 * seatIds.length + 4 + name.length + 4 + priceText.length
+                    + 4 + key.length);
+            out.putInt(showTimeId);
+            out.putLong(bookingTime.toInstant(ZoneOffset.UTC).toEpochMilli());
+            out.putInt(seatIds.length);
+            for (int seatId : seatIds) {
+                out.putInt(seatId);
+            }
+            out.putInt(name.length).put(name);
+            out.putInt(priceText.length).put(priceText);
+            out.putInt(idempotencyKey != null ? key.length : -1).put(key);
+            return out.array();
+        }
+
+        static JournalEntry decode(byte[] payload) {
+            ByteBuffer in = ByteBuffer.wrap(payload);
+            int showTimeId = in.getInt();
+            LocalDateTime bookingTime = LocalDateTime.ofInstant(Instant.ofEpochMilli(in.getLong()), ZoneOffset.UTC);
+            int[] seatIds = new int[in.getInt()];
+            for (int i = 0; i < seatIds.length; i++) {
+                seatIds[i] = in.getInt();
+            }
+            byte[] name = new byte[in.getInt()];
+            in.get(name);
+            byte[] priceText = new byte[in.getInt()];
+            in.get(priceText);
+            String idempotencyKey = null;
+            int keyLength = in.hasRemaining() ? in.getInt() : -1;
+            if (keyLength >= 0) {
+                byte[] key = new byte[keyLength];
+                in.get(key);
+                idempotencyKey = new String(key, StandardCharsets.UTF_8);
+            }
+            return new JournalEntry(showTimeId, seatIds, new String(name, StandardCharsets.UTF_8),
+                    new BigDecimal(new String(priceText, StandardCharsets.US_ASCII)), bookingTime, idempotencyKey);
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package com.movieticketsystem.movieticketapp.service;
+
+import com.movieticketsystem.movieticketapp.model.Ticket;
+import com.movieticketsystem.movieticketapp.repository.TicketRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestClientException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Entry point for seat operations from the web layer. Outside partitioned mode everything runs locally;
+ * with {@code app.cluster.enabled=true} operations on a showtime owned by another node are forwarded to it
+ * (see ClusterMembership), so only the owner's SeatManager ever claims its seats.
+ *
+ * A node keeps its SeatManager copy of foreign showtimes as a read replica for rendering: the owner's booked
+ * seats are pulled on every seat-page view and, for recently viewed showtimes, every
+ * {@code app.cluster.replica-sync-ms}, so live seat-map events keep flowing on non-owners too.
+ */
+@Service
+public class BookingRouter {
+
+    private static final Logger log = LoggerFactory.getLogger(BookingRouter.class);
+
+    private static final long REPLICA_VIEW_WINDOW_NANOS = TimeUnit.MINUTES.toNanos(5);
+
+    private final ClusterMembership membership;
+    private final ClusterClient clusterClient;
+    private final BookingService bookingService;
+    private final SeatHoldManager seatHoldManager;
+    private final SeatManager seatManager;
+
+    // Foreign showtime -> last seat-page view, for the periodic replica sync
+    private final ConcurrentHashMap<Integer, Long> viewedReplicas = new ConcurrentHashMap<>();
+
+    @Autowired
+    public BookingRouter(ClusterMembership membership, ClusterClient clusterClient, BookingService bookingService,
+                         SeatHoldManager seatHoldManager, SeatManager seatManager) {
+        this.membership = membership;
+        this.clusterClient = clusterClient;
+        this.bookingService = bookingService;
+        this.seatHoldManager = seatHoldManager;
+        this.seatManager = seatManager;
+    }
+
+    /**
+     * Books the given seats. Seats held by the session are converted from their hold and the rest claimed;
+     * several seats are booked together, all or nothing.
+     */
+    public List<BookedTicket> book(Integer showTimeId, List<Integer> seatIds, String customerName, String sessionId,
+                                   String idempotencyKey) {
+        if (!membership.isLocal(showTimeId)) {
+            return clusterClient.book(membership.ownerOf(showTimeId), showTimeId,
+                    new Command(seatIds, null, customerName, sessionId, idempotencyKey));
+        }
+        return bookLocally(showTimeId, seatIds, customerName, sessionId, idempotencyKey);
+    }
+
+    public List<BookedTicket> bookLocally(Integer showTimeId, List<Integer> seatIds, String customerName, String sessionId,
+                                          String idempotencyKey) {
+        List<Ticket> tickets;
+        if (seatIds.stream().anyMatch(seatId -> seatHoldManager.isHeldBy(showTimeId, seatId, sessionId))) {
+            tickets = bookingService.bookHeldSeats(showTimeId, seatIds, sessionId, customerName, idempotencyKey);
+        } else if (seatIds.size() == 1) {
+            Ticket ticket = bookingService.bookSeat(showTimeId, seatIds.get(0), customerName, idempotencyKey);
+            tickets = ticket != null ? List.of(ticket) : List.of();
+        } else {
+            tickets = bookingService.bookSeats(showTimeId, seatIds, customerName, idempotencyKey);
+        }
+        return tickets.stream().map(BookedTicket::of).toList();
+    }
+
+    public List<BookedTicket> bookBestAvailable(Integer showTimeId, int count, String customerName, String idempotencyKey) {
+        if (!membership.isLocal(showTimeId)) {
+            return clusterClient.bookBestAvailable(membership.ownerOf(showTimeId), showTimeId,
+                    new Command(null, count, customerName, null, idempotencyKey));
+        }
+        return bookBestAvailableLocally(showTimeId, count, customerName, idempotencyKey);
+    }
+
+    public List<BookedTicket> bookBestAvailableLocally(Integer showTimeId, int count, String customerName,
+                                                       String idempotencyKey) {
+        return bookingService.bookBestAvailable(showTimeId, count, customerName, idempotencyKey).stream()
+                .map(BookedTicket::of).toList();
+    }
+
+    public boolean hold(Integer showTimeId, List<Integer> seatIds, String sessionId) {
+        if (!membership.isLocal(showTimeId)) {
+            try {
+                return clusterClient.hold(membership.ownerOf(showTimeId), showTimeId,
+                        new Command(seatIds, null, null, sessionId, null));
+            } catch (RestClientException e) {
+                log.warn("Forwarding hold for showtime {} failed: {}", showTimeId, e.getMessage());
+                return false;
+            }
+        }
+        return bookingService.holdSeats(showTimeId, seatIds, sessionId);
+    }
+
+    public boolean cancel(Integer showTimeId, Integer ticketId, String idempotencyKey) {
+        if (!membership.isLocal(showTimeId)) {
+            return clusterClient.cancel(membership.ownerOf(showTimeId), showTimeId, ticketId,
+                    new Command(null, null, null, null, idempotencyKey));
+        }
+        return bookingService.cancelTicket(ticketId, showTimeId, idempotencyKey);
+    }
+
+    /**
+     * Cancels a showtime with all its tickets, see {@link BookingService#cancelShowTime}. In partitioned mode the
+     * owner closes its sales first, since only its SeatManager claims seats of the showtime, and drops the showtime
+     * once the cancellation has committed; the database work and the refunds run on this node.
+     *
+     * @throws RestClientException if the owner cannot close its sales; nothing has been canceled then.
+     */
+    public Optional<BookingService.ShowTimeCancellation> cancelShowTime(
+            Integer showTimeId, Consumer<TicketRepository.RefundableTicket> refunds) {
+        if (membership.isLocal(showTimeId)) {
+            return bookingService.cancelShowTime(showTimeId, refunds);
+        }
+        String owner = membership.ownerOf(showTimeId);
+        clusterClient.closeSales(owner, showTimeId);
+        Optional<BookingService.ShowTimeCancellation> result = bookingService.cancelShowTime(showTimeId, refunds);
+        if (result.isPresent()) {
+            try {
+                clusterClient.dropCanceledShowTime(owner, showTimeId);
+            } catch (RestClientException e) {
+                // Its sales stay closed, so the owner's copy only shows a full hall until it is evicted
+                log.warn("Owner {} did not drop canceled showtime {}: {}", owner, showTimeId, e.getMessage());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Brings this node's view of the showtime up to date before its seat page is rendered.
+     * If the owner cannot be reached the page shows the last known state.
+     *
+     * @return IDs of the seats the session holds (on whichever node owns the showtime), unsorted.
+     */
+    public List<Integer> prepareSeatPage(Integer showTimeId, String sessionId) {
+        if (membership.isLocal(showTimeId)) {
+            return seatHoldManager.heldSeatIds(showTimeId, sessionId);
+        }
+        viewedReplicas.put(showTimeId, System.nanoTime());
+        try {
+            SeatState state = clusterClient.seatState(membership.ownerOf(showTimeId), showTimeId, sessionId);
+            seatManager.applyReplicaState(showTimeId, state.bookedSeatIds());
+            return new ArrayList<>(state.heldSeatIds());
+        } catch (RestClientException e) {
+            log.warn("Cannot fetch seat state of showtime {} from {}: {}", showTimeId, membership.ownerOf(showTimeId),
+                    e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * State of an owned showtime as seen by other nodes.
+     */
+    public SeatState localSeatState(Integer showTimeId, String sessionId) {
+        List<Integer> held = sessionId == null || sessionId.isEmpty()
+                ? List.of() : seatHoldManager.heldSeatIds(showTimeId, sessionId);
+        return new SeatState(seatManager.getBookedSeatIds(showTimeId), held);
+    }
+
+    /**
+     * Keeps recently viewed replicas current, so seat-map events reach open pages on this node.
+     * A showtime whose owner cannot be reached stays as it is until the next sync.
+     */
+    @Scheduled(fixedDelayString = "${app.cluster.replica-sync-ms:1000}")
+    public void syncViewedReplicas() {
+        if (!membership.isEnabled()) {
+            return;
+        }
+        long now = System.nanoTime();
+        viewedReplicas.forEach((showTimeId, lastView) -> {
+            if (now - lastView > REPLICA_VIEW_WINDOW_NANOS || membership.isLocal(showTimeId)) {
+                viewedReplicas.remove(showTimeId, lastView);
+                return;
+            }
+            try {
+                SeatState state = clusterClient.seatState(membership.ownerOf(showTimeId), showTimeId, null);
+                seatManager.applyReplicaState(showTimeId, state.bookedSeatIds());
+            } catch (RestClientException e) {
+                log.debug("Replica sync of showtime {} failed: {}", showTimeId, e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * A forwarded request; only the fields the operation needs are set.
+     */
+    public record Command(List<Integer> seatIds, Integer count, String customerName, String sessionId,
+                          String idempotencyKey) {
+    }
+
+    /**
+     * Booked seats of a showtime plus the seats one session holds.
+     */
+    public record SeatState(int[] bookedSeatIds, List<Integer> heldSeatIds) {
+    }
+
+    /**
+     * What the web layer shows about a booked ticket; the ID is null until a write-behind booking is drained.
+     */
+    public record BookedTicket(Integer ticketId, String seatRow, Integer seatNumber) {
+
+        static BookedTicket of(Ticket ticket) {
+            return new BookedTicket(ticket.getTicketID(), ticket.getSeat().getSeatRow(), ticket.getSeat().getSeatNumber());
+        }
+    }
+}
@@ -3,121 +3,601 @@ package com.movieticketsystem.movieticketapp.service;
 import com.movieticketsystem.movieticketapp.model.Seat;
 import com.movieticketsystem.movieticketapp.model.ShowTime;
 import com.movieticketsystem.movieticketapp.model.Ticket;
-import com.movieticketsystem.movieticketapp.repository.SeatRepository;
 import com.movieticketsystem.movieticketapp.repository.ShowTimeRepository;
 import com.movieticketsystem.movieticketapp.repository.TicketRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.ConcurrencyFailureException;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 
 @Service
 public class BookingService {
 
+    private static final Logger log = LoggerFactory.getLogger(BookingService.class);
+
+    // How long a showtime cancellation waits for acknowledged write-behind bookings to reach SQL
+    private static final Duration WRITE_BEHIND_FLUSH_TIMEOUT = Duration.ofSeconds(30);
+    private static final int REFUND_ACKS_PER_UPDATE = 1000;
+
     private final SeatManager seatManager;
     private final TicketRepository ticketRepository;
     private final ShowTimeRepository showTimeRepository;
-    private final SeatRepository seatRepository;
+    private final SeatHoldManager seatHoldManager;
+    private final SeatClaimTransactions claimTransactions;
+    private final ObjectProvider<WriteBehindTicketWriter> writeBehindWriter;
+    private final ObjectProvider<ShowTimeActors> actors;
+    private final IdempotencyCache idempotencyCache;
+    private final BestAvailableSeatFinder seatFinder;
+    private final CatalogCache catalogCache;
+    private final Timer persistTimer;
 
     @Autowired
     public BookingService(SeatManager seatManager, TicketRepository ticketRepository,
-                          ShowTimeRepository showTimeRepository, SeatRepository seatRepository) {
+                          ShowTimeRepository showTimeRepository,
+                          SeatHoldManager seatHoldManager, SeatClaimTransactions claimTransactions,
+                          ObjectProvider<WriteBehindTicketWriter> writeBehindWriter, ObjectProvider<ShowTimeActors> actors,
+                          IdempotencyCache idempotencyCache, BestAvailableSeatFinder seatFinder,
+                          CatalogCache catalogCache, MeterRegistry meterRegistry) {
         this.seatManager = seatManager;
+        this.idempotencyCache = idempotencyCache;
+        this.seatFinder = seatFinder;
+        this.catalogCache = catalogCache;
+        this.persistTimer = Timer.builder("booking.persist")
+                .description("Time spent writing a claimed booking to the database, per attempt")
+                .register(meterRegistry);
+        this.writeBehindWriter = writeBehindWriter;
+        this.actors = actors;
+        this.seatHoldManager = seatHoldManager;
+        this.claimTransactions = claimTransactions;
         this.ticketRepository = ticketRepository;
         this.showTimeRepository = showTimeRepository;
-        this.seatRepository = seatRepository;
     }
 
     /**
      * Attempts to book a seat for a given showtime.
      * This method handles the in-memory seat availability check and update,
-     * and then persists the ticket to the database.
+     * and then persists the ticket to the database. If the database work fails or
+     * its transaction does not commit, the in-memory seat is released again.
      *
      * @param showTimeId The ID of the showtime.
      * @param seatId The ID of the seat.
      * @param customerName The name of the customer booking the ticket.
      * @return The created Ticket object if successful, null otherwise.
      */
-    @Transactional // Ensures atomicity for database operations
     public Ticket bookSeat(Integer showTimeId, Integer seatId, String customerName) {
+        return bookSeat(showTimeId, seatId, customerName, null);
+    }
+
+    /**
+     * Books a seat like {@link #bookSeat(Integer, Integer, String)}; a repeated idempotency key is answered
+     * with the original result without booking again.
+     */
+    public Ticket bookSeat(Integer showTimeId, Integer seatId, String customerName, String idempotencyKey) {
+        List<Ticket> tickets = idempotent(idempotencyKey, showTimeId, List.of(seatId),
+                () -> bookSeatOnce(showTimeId, seatId, customerName, idempotencyKey));
+        return tickets.isEmpty() ? null : tickets.get(0);
+    }
+
+    private List<Ticket> bookSeatOnce(Integer showTimeId, Integer seatId, String customerName, String idempotencyKey) {
+        ShowTimeActors actorEngine = actorEngine();
+        if (actorEngine != null) {
+            return await(actorEngine.book(showTimeId, List.of(seatId), customerName, idempotencyKey));
+        }
         // 1. Try to book the seat in memory using SeatManager (atomic operation)
         if (!seatManager.tryBookSeat(showTimeId, seatId)) {
-            System.out.println("Seat " + seatId + " for showtime " + showTimeId + " is already booked or not found.");
-            return null; // Seat is not available or doesn't exist
+            log.debug("Seat {} for showtime {} is already booked or not found.", seatId, showTimeId);
+            return Collections.emptyList(); // Seat is not available or doesn't exist
         }
 
         // 2. If in-memory booking is successful, proceed with database operations
-        Optional<ShowTime> showTimeOpt = showTimeRepository.findById(showTimeId);
-        Optional<Seat> seatOpt = seatRepository.findById(seatId);
-
-        if (showTimeOpt.isEmpty() || seatOpt.isEmpty()) {
-            // This should ideally not happen if SeatManager is initialized correctly
-            // but as a fallback, release the in-memory seat if DB lookup fails.
-            seatManager.tryCancelSeat(showTimeId, seatId);
-            System.err.println("Error: Showtime or Seat not found in DB after in-memory booking. Releasing seat.");
-            return null;
+        SeatClaim claim = new SeatClaim(seatManager, showTimeId, List.of(seatId));
+        return persist(claim, customerName, idempotencyKey);
+    }
+
+    /**
+     * Books several seats of one showtime for the same customer, all or nothing.
+     * All seats are claimed in SeatManager first; the tickets and a single AvailableSeats
+     * decrement are then written in one transaction.
+     *
+     * @param showTimeId The ID of the showtime.
+     * @param seatIds The IDs of the seats to book together.
+     * @param customerName The name of the customer booking the tickets.
+     * @return The created tickets if every seat was booked, an empty list otherwise.
+     */
+    public List<Ticket> bookSeats(Integer showTimeId, List<Integer> seatIds, String customerName) {
+        return bookSeats(showTimeId, seatIds, customerName, null);
+    }
+
+    /**
+     * Books seats like {@link #bookSeats(Integer, List, String)}; a repeated idempotency key is answered
+     * with the original result without booking again.
+     */
+    public List<Ticket> bookSeats(Integer showTimeId, List<Integer> seatIds, String customerName, String idempotencyKey) {
+        return idempotent(idempotencyKey, showTimeId, seatIds,
+                () -> bookSeatsOnce(showTimeId, seatIds, customerName, idempotencyKey));
+    }
+
+    private List<Ticket> bookSeatsOnce(Integer showTimeId, List<Integer> seatIds, String customerName, String idempotencyKey) {
+        ShowTimeActors actorEngine = actorEngine();
+        if (actorEngine != null) {
+            return await(actorEngine.book(showTimeId, seatIds, customerName, idempotencyKey));
+        }
+        // 1. Claim every seat in memory, or none of them
+        if (!seatManager.tryBookSeats(showTimeId, seatIds)) {
+            log.debug("Seats {} for showtime {} could not all be booked.", seatIds, showTimeId);
+            return Collections.emptyList();
+        }
+
+        SeatClaim claim = new SeatClaim(seatManager, showTimeId, seatIds);
+        return persist(claim, customerName, idempotencyKey);
+    }
+
+    /**
+     * Books seats for a session, all or nothing: the seats it holds (see SeatHoldManager) are turned into tickets
+     * and any others among {@code seatIds} are claimed like in {@link #bookSeats}.
+     *
+     * @param showTimeId The ID of the showtime.
+     * @param seatIds The IDs of the seats to book, held by the session or free.
+     * @param sessionId The session that holds some or all of the seats.
+     * @param customerName The name of the customer booking the tickets.
+     * @return The created tickets if every seat was booked, an empty list otherwise.
+     */
+    public List<Ticket> bookHeldSeats(Integer showTimeId, List<Integer> seatIds, String sessionId, String customerName) {
+        return bookHeldSeats(showTimeId, seatIds, sessionId, customerName, null);
+    }
+
+    /**
+     * Books held seats like {@link #bookHeldSeats(Integer, List, String, String)}; a repeated idempotency key is
+     * answered with the original result without booking again.
+     */
+    public List<Ticket> bookHeldSeats(Integer showTimeId, List<Integer> seatIds, String sessionId, String customerName,
+                                      String idempotencyKey) {
+        return idempotent(idempotencyKey, showTimeId, seatIds,
+                () -> bookHeldSeatsOnce(showTimeId, seatIds, sessionId, customerName, idempotencyKey));
+    }
+
+    private List<Ticket> bookHeldSeatsOnce(Integer showTimeId, List<Integer> seatIds, String sessionId, String customerName,
+                                           String idempotencyKey) {
+        ShowTimeActors actorEngine = actorEngine();
+        if (actorEngine != null) {
+            return await(actorEngine.bookHeld(showTimeId, seatIds, sessionId, customerName, idempotencyKey));
+        }
+        // 1. Take over the holds, whose seats stay claimed in SeatManager, and claim the rest
+        if (!seatHoldManager.claimForBooking(showTimeId, seatIds, sessionId)) {
+            log.debug("Seats {} for showtime {} are neither held by this session nor free.", seatIds, showTimeId);
+            return Collections.emptyList();
         }
 
-        ShowTime showTime = showTimeOpt.get();
-        Seat seat = seatOpt.get();
+        SeatClaim claim = new SeatClaim(seatManager, showTimeId, seatIds);
+        return persist(claim, customerName, idempotencyKey);
+    }
+
+    /**
+     * Books the best block of {@code count} adjacent free seats (see BestAvailableSeatFinder), all or nothing.
+     *
+     * @param showTimeId The ID of the showtime.
+     * @param count The number of adjacent seats wanted.
+     * @param customerName The name of the customer booking the tickets.
+     * @param idempotencyKey Optional client key; a repeat is answered with the original result.
+     * @return The created tickets, or an empty list if no block of that size could be claimed.
+     */
+    public List<Ticket> bookBestAvailable(Integer showTimeId, int count, String customerName, String idempotencyKey) {
+        return idempotent(idempotencyKey, "best:" + showTimeId + ":" + count,
+                previous -> previous.size() == count
+                        && previous.stream().allMatch(t -> t.getShowTime().getShowTimeID().equals(showTimeId)),
+                () -> {
+                    ShowTimeActors actorEngine = actorEngine();
+                    if (actorEngine != null) {
+                        return await(actorEngine.bookBestAvailable(showTimeId, count, customerName, idempotencyKey));
+                    }
+                    // 1. Find and claim a block in memory; lost races fall back to the next best block
+                    List<Integer> seatIds = seatFinder.claimBestAvailable(showTimeId, count);
+                    if (seatIds.isEmpty()) {
+                        log.debug("No block of {} adjacent seats available for showtime {}.", count, showTimeId);
+                        return Collections.emptyList();
+                    }
+                    SeatClaim claim = new SeatClaim(seatManager, showTimeId, seatIds);
+                    return persist(claim, customerName, idempotencyKey);
+                });
+    }
+
+    /**
+     * Holds seats for the session while it checks out, see {@link SeatHoldManager#holdSeats}.
+     *
+     * @return true if every seat is now held by the session.
+     */
+    public boolean holdSeats(Integer showTimeId, List<Integer> seatIds, String sessionId) {
+        ShowTimeActors actorEngine = actorEngine();
+        return actorEngine != null
+                ? await(actorEngine.hold(showTimeId, seatIds, sessionId))
+                : seatHoldManager.holdSeats(showTimeId, seatIds, sessionId);
+    }
+
+    /**
+     * The single-writer engine if {@code app.booking.engine=actor}. Not used inside a caller's transaction,
+     * since the actor persists in its own; such bookings take the direct path, which SeatManager keeps safe.
+     */
+    private ShowTimeActors actorEngine() {
+        ShowTimeActors actorEngine = actors.getIfAvailable();
+        return actorEngine != null && !TransactionSynchronizationManager.isActualTransactionActive() ? actorEngine : null;
+    }
+
+    private static <T> T await(CompletableFuture<T> result) {
+        try {
+            return result.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
 
-        // 3. Create and save the Ticket
-        Ticket ticket = new Ticket(showTime, seat, customerName, showTime.getMovie().getPrice());
-        ticketRepository.save(ticket);
+    /**
+     * Runs a booking of the given seats at most once per idempotency key, see
+     * {@link #idempotent(String, String, Predicate, Supplier)}.
+     */
+    private List<Ticket> idempotent(String idempotencyKey, Integer showTimeId, List<Integer> seatIds,
+                                    Supplier<List<Ticket>> booking) {
+        List<Integer> requestedSeats = seatIds.stream().sorted().toList();
+        return idempotent(idempotencyKey, "book:" + showTimeId + ":" + requestedSeats,
+                previous -> previous.stream().map(t -> t.getSeat().getSeatID()).sorted().toList().equals(requestedSeats),
+                booking);
+    }
 
-        // 4. Update available seats count in ShowTime (in DB)
-        // This update is also part of the transaction.
-        showTime.setAvailableSeats(showTime.getAvailableSeats() - 1);
-        showTimeRepository.save(showTime);
+    /**
+     * Runs a booking at most once per idempotency key. Repeats within the cache TTL are answered from memory;
+     * after that (or after a restart) the tickets stored with the key are returned instead of booking again,
+     * provided they match the request.
+     */
+    private List<Ticket> idempotent(String idempotencyKey, String fingerprint, Predicate<List<Ticket>> sameRequest,
+                                    Supplier<List<Ticket>> booking) {
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            return booking.get();
+        }
+        return idempotencyCache.execute("book:" + idempotencyKey, fingerprint, () -> {
+            List<Ticket> previous = ticketRepository.findActiveByIdempotencyKey(idempotencyKey);
+            if (previous.isEmpty()) {
+                return booking.get();
+            }
+            if (!sameRequest.test(previous)) {
+                throw new IllegalArgumentException("Idempotency key was already used for a different request");
+            }
+            log.debug("Booking with idempotency key {} already exists; returning its tickets.", idempotencyKey);
+            return previous;
+        });
+    }
 
-        System.out.println("Successfully booked seat " + seat.getSeatRow() + seat.getSeatNumber() +
-                " for movie '" + showTime.getMovie().getTitle() + "' at " + showTime.getShowTimeDateTime());
-        return ticket;
+    /**
+     * Persists a claimed booking: through the write-behind journal when that mode is enabled
+     * (tickets are acknowledged before they have IDs), otherwise synchronously in a transaction.
+     */
+    private List<Ticket> persist(SeatClaim claim, String customerName, String idempotencyKey) {
+        WriteBehindTicketWriter writer = writeBehindWriter.getIfAvailable();
+        if (writer != null && !TransactionSynchronizationManager.isActualTransactionActive()) {
+            List<Ticket> journaled = writer.submit(claim, customerName, idempotencyKey);
+            if (journaled != null) {
+                return journaled;
+            }
+        }
+        boolean joined = TransactionSynchronizationManager.isActualTransactionActive();
+        try {
+            return claimTransactions.executeWithClaim(claim,
+                    () -> persistTimer.record(() -> persistTickets(claim, customerName, idempotencyKey)));
+        } catch (SalesClosedException e) {
+            if (joined) {
+                throw e; // the caller's transaction holds the tickets written so far and must roll back
+            }
+            log.info("Sales of showtime {} closed while booking seats {}; nothing booked.",
+                    claim.getShowTimeId(), claim.getSeatIds());
+            return Collections.emptyList();
+        }
+    }
+
+    /**
+     * Writes tickets for seats already claimed in SeatManager, releasing the claim if the DB lookup fails.
+     * Runs inside the transaction opened by SeatClaimTransactions and may be retried.
+     * Costs one select, one insert and one update for a single ticket; a group adds one query that reads the
+     * IDs of its multi-row insert back, whatever its size.
+     */
+    private List<Ticket> persistTickets(SeatClaim claim, String customerName, String idempotencyKey) {
+        Integer showTimeId = claim.getShowTimeId();
+        List<Integer> seatIds = claim.getSeatIds();
+
+        // 2. Price and log details in one projection query; seats come from SeatManager's layout, which was
+        // read from the Seats table, and the showtime is only needed as a foreign key
+        Optional<ShowTimeRepository.BookingDetails> details = showTimeRepository.findBookingDetails(showTimeId);
+        List<Seat> seats = new ArrayList<>(seatIds.size());
+        for (Integer seatId : seatIds) {
+            Seat seat = seatManager.getSeat(showTimeId, seatId);
+            if (seat != null) {
+                seats.add(seat);
+            }
+        }
+
+        if (details.isEmpty() || seats.size() != seatIds.size()) {
+            claim.release();
+            if (!seatManager.isOnSale(showTimeId)) {
+                // Canceled or evicted since the seats were claimed: an expected race, not an inconsistency
+                log.info("Sales of showtime {} closed while booking seats {}; nothing booked.", showTimeId, seatIds);
+            } else {
+                log.error("Showtime {} or seats {} not found after in-memory booking. Releasing seats.", showTimeId, seatIds);
+            }
+            return Collections.emptyList();
+        }
+
+        ShowTime showTime = showTimeRepository.getReferenceById(showTimeId);
+        BigDecimal price = details.get().getPrice();
+
+        // 3. Create and save all tickets together
+        List<Ticket> tickets = new ArrayList<>(seats.size());
+        for (Seat seat : seats) {
+            Ticket ticket = new Ticket(showTime, seat, customerName, price);
+            ticket.setIdempotencyKey(idempotencyKey);
+            tickets.add(ticket);
+        }
+        ticketRepository.insertAll(tickets);
+
+        // 4. One atomic AvailableSeats decrement for the whole group
+        if (showTimeRepository.decrementAvailableSeats(showTimeId, tickets.size()) == 0) {
+            if (!seatManager.isOnSale(showTimeId)) {
+                throw new SalesClosedException(showTimeId); // canceled while this booking was in flight
+            }
+            // Counter would go negative: DB and SeatManager disagree, so roll back rather than oversell
+            throw new IllegalStateException("AvailableSeats for showtime " + showTimeId + " is lower than " + tickets.size());
+        }
+
+        log.atInfo()
+                .addKeyValue("showTimeId", showTimeId)
+                .addKeyValue("seatCount", tickets.size())
+                .log("Successfully booked {} seats for movie '{}' at {}", tickets.size(),
+                        details.get().getMovieTitle(), details.get().getShowTimeDateTime());
+        return tickets;
     }
 
     /**
      * Attempts to cancel a ticket.
-     * This method updates the in-memory seat availability and the ticket status in the database.
+     * This method updates the ticket status in the database and releases the in-memory seat
+     * only once that change has committed, so a rolled-back cancellation never frees the seat.
      *
      * @param ticketId The ID of the ticket to cancel.
      * @return true if the ticket was successfully canceled, false otherwise.
      */
-    @Transactional
     public boolean cancelTicket(Integer ticketId) {
-        Optional<Ticket> ticketOpt = ticketRepository.findById(ticketId);
+        return claimTransactions.execute(() -> cancelTicketInTransaction(ticketId, null));
+    }
+
+    /**
+     * Cancels a ticket like {@link #cancelTicket(Integer)}; a repeated idempotency key is answered with the
+     * original result, so a resubmitted cancel reports success instead of "already canceled".
+     * Tickets of any other showtime than {@code expectedShowTimeId} (if given) are refused: the form is per
+     * showtime, and in partitioned mode another node may manage that showtime's seats.
+     */
+    public boolean cancelTicket(Integer ticketId, Integer expectedShowTimeId, String idempotencyKey) {
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            return cancelTicketOnce(ticketId, expectedShowTimeId);
+        }
+        return idempotencyCache.execute("cancel:" + idempotencyKey, "cancel:" + ticketId,
+                () -> cancelTicketOnce(ticketId, expectedShowTimeId));
+    }
+
+    private boolean cancelTicketOnce(Integer ticketId, Integer expectedShowTimeId) {
+        ShowTimeActors actorEngine = actorEngine();
+        if (actorEngine != null && expectedShowTimeId != null) {
+            return await(actorEngine.cancel(expectedShowTimeId, ticketId));
+        }
+        return claimTransactions.execute(() -> cancelTicketInTransaction(ticketId, expectedShowTimeId));
+    }
+
+    /**
+     * Costs one select (ticket and seat) and two updates; the showtime is only read through its foreign key.
+     */
+    private boolean cancelTicketInTransaction(Integer ticketId, Integer expectedShowTimeId) {
+        Optional<Ticket> ticketOpt = ticketRepository.findWithSeatById(ticketId);
 
         if (ticketOpt.isEmpty()) {
-            System.out.println("Ticket with ID " + ticketId + " not found.");
+            log.info("Ticket with ID {} not found.", ticketId);
             return false;
         }
 
         Ticket ticket = ticketOpt.get();
         if (ticket.getIsCanceled()) {
-            System.out.println("Ticket with ID " + ticketId + " is already canceled.");
+            log.info("Ticket with ID {} is already canceled.", ticketId);
             return false;
         }
 
         Integer showTimeId = ticket.getShowTime().getShowTimeID();
         Integer seatId = ticket.getSeat().getSeatID();
+        if (expectedShowTimeId != null && !expectedShowTimeId.equals(showTimeId)) {
+            log.info("Ticket with ID {} belongs to showtime {}, not {}.", ticketId, showTimeId, expectedShowTimeId);
+            return false;
+        }
 
-        // 1. Try to cancel the seat in memory using SeatManager (atomic operation)
-        if (!seatManager.tryCancelSeat(showTimeId, seatId)) {
-            System.err.println("Failed to release in-memory seat " + seatId + " for showtime " + showTimeId);
+        // 1. The seat must be booked in memory for a valid, active ticket
+        if (seatManager.isSeatAvailable(showTimeId, seatId)) {
+            log.warn("In-memory seat {} for showtime {} is not booked; refusing to cancel.", seatId, showTimeId);
             return false; // Should ideally not happen if ticket was valid and booked
         }
 
-        // 2. Update ticket status in database
-        ticket.setIsCanceled(true);
-        ticketRepository.save(ticket);
+        // 2. Update ticket status in database; only one concurrent cancel of the same ticket wins
+        if (ticketRepository.markCanceled(ticketId) == 0) {
+            log.info("Ticket with ID {} is already canceled.", ticketId);
+            return false;
+        }
+
+        // 3. Atomically give the seat back to the AvailableSeats counter (in DB)
+        if (showTimeRepository.incrementAvailableSeats(showTimeId, 1) == 0) {
+            // Counter would pass TotalSeats: DB and the Tickets table disagree, so roll back rather than drift
+            throw new IllegalStateException("AvailableSeats for showtime " + showTimeId + " is already at TotalSeats");
+        }
 
-        // 3. Update available seats count in ShowTime (in DB)
-        ShowTime showTime = ticket.getShowTime();
-        showTime.setAvailableSeats(showTime.getAvailableSeats() + 1);
-        showTimeRepository.save(showTime);
+        // 4. Release the seat in memory once the cancellation is committed
+        SeatClaimTransactions.afterCommit(() -> seatManager.tryCancelSeat(showTimeId, seatId));
 
-        System.out.println("Successfully canceled ticket " + ticketId + " for seat " +
-                ticket.getSeat().getSeatRow() + ticket.getSeat().getSeatNumber());
+        log.atInfo()
+                .addKeyValue("showTimeId", showTimeId)
+                .addKeyValue("ticketId", ticketId)
+                .log("Successfully canceled ticket {} for seat {}{}", ticketId,
+                        ticket.getSeat().getSeatRow(), ticket.getSeat().getSeatNumber());
         return true;
     }
-}
\ No newline at end of file
+
+    /**
+     * Cancels a screening together with all its active tickets, instead of one {@link #cancelTicket} per ticket.
+     * Sales are closed in SeatManager first, so no seat can be claimed any more. A booking already in flight either
+     * committed before the cancellation, and its tickets are canceled with the rest, or fails afterwards because
+     * no seats are left for sale. In write-behind mode the bookings acknowledged so far are written to SQL first.
+     *
+     * The database work is three statements whatever the size of the hall: the showtime is marked canceled (taking
+     * its row lock), its active tickets are read as small projections, and one UPDATE cancels them and marks them
+     * refund-pending. Once committed, {@code refunds} gets each canceled ticket outside the transaction, and one more
+     * UPDATE acknowledges those it accepted. A ticket whose hand-over throws, or whose acknowledgement fails, stays
+     * pending; repeating the call hands over the pending tickets again, so the consumer should key refunds by
+     * ticket ID. A deadlock with a concurrent booking that makes the transaction retry hands over nothing twice.
+     * If the cancellation fails, sales stay closed and the call can be repeated.
+     *
+     * Only this node's SeatManager is closed; in partitioned mode use {@link BookingRouter#cancelShowTime}, which
+     * closes the owner's sales first.
+     *
+     * @param showTimeId The ID of the showtime.
+     * @param refunds Receives every ticket canceled by this call, after commit, or if this call canceled none,
+     *                every ticket still refund-pending from an earlier call.
+     * @return The number of canceled tickets, their total price and the refunds left pending, or empty if the
+     *         showtime does not exist.
+     */
+    public Optional<ShowTimeCancellation> cancelShowTime(Integer showTimeId,
+                                                         Consumer<TicketRepository.RefundableTicket> refunds) {
+        closeSales(showTimeId);
+        List<TicketRepository.RefundableTicket> tickets = claimTransactions.execute(() -> cancelShowTimeInTransaction(showTimeId));
+        if (tickets == null) {
+            return Optional.empty();
+        }
+
+        // 5. The cancellation has committed; nothing below may fail the call or make it run again
+        try {
+            dropCanceledShowTime(showTimeId);
+        } catch (RuntimeException e) {
+            log.error("Canceled showtime {} could not be dropped from memory", showTimeId, e);
+        }
+        BigDecimal refundTotal = tickets.stream().map(TicketRepository.RefundableTicket::getPrice)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+
+        // 6. Hand over the refunds; a repeated call picks up those an earlier call could not hand over
+        List<TicketRepository.RefundableTicket> toRefund = tickets.isEmpty()
+                ? ticketRepository.findRefundPending(showTimeId) : tickets;
+        int refundsPending = handOverRefunds(showTimeId, toRefund, refunds);
+
+        log.atInfo()
+                .addKeyValue("showTimeId", showTimeId)
+                .addKeyValue("ticketCount", tickets.size())
+                .log("Canceled showtime {} with {} tickets; {} to refund, {} refunds pending", showTimeId,
+                        tickets.size(), refundTotal, refundsPending);
+        return Optional.of(new ShowTimeCancellation(showTimeId, tickets.size(), refundTotal, refundsPending));
+    }
+
+    /**
+     * Stops the sales of a showtime on this node ahead of its cancellation: SeatManager claims none of its seats
+     * any more, and in write-behind mode the bookings acknowledged so far are written to SQL.
+     *
+     * @param showTimeId The ID of the showtime.
+     * @return true if the showtime is in this node's memory.
+     */
+    public boolean closeSales(Integer showTimeId) {
+        // 1. Stop claims in memory; seats claimed before stay taken even if their booking fails
+        boolean inMemory = seatManager.closeSales(showTimeId);
+
+        // 2. Bookings acknowledged through the journal must be in SQL to be canceled
+        WriteBehindTicketWriter writer = writeBehindWriter.getIfAvailable();
+        if (writer != null && !writer.flush(WRITE_BEHIND_FLUSH_TIMEOUT)) {
+            throw new IllegalStateException("Write-behind journal did not drain; showtime " + showTimeId + " was not canceled");
+        }
+        return inMemory;
+    }
+
+    /**
+     * Drops a canceled showtime from this node's SeatManager (the loader skips canceled showtimes) and catalog.
+     * Called once the cancellation has committed.
+     */
+    public void dropCanceledShowTime(Integer showTimeId) {
+        seatManager.evictShowTime(showTimeId);
+        catalogCache.invalidateAll();
+    }
+
+    private List<TicketRepository.RefundableTicket> cancelShowTimeInTransaction(Integer showTimeId) {
+        // 3. Close the showtime in the database; waits for bookings and cancellations that hold its row
+        if (showTimeRepository.markCanceled(showTimeId) == 0) {
+            log.info("Showtime {} not found; nothing to cancel.", showTimeId);
+            return null;
+        }
+
+        // 4. Read what the refunds need, then cancel every active ticket at once, marking it refund-pending
+        List<TicketRepository.RefundableTicket> tickets = ticketRepository.findActiveForRefund(showTimeId);
+        int canceled = ticketRepository.markCanceledByShowTime(showTimeId);
+        if (canceled != tickets.size()) {
+            // Only possible if a ticket changed between the two statements; retried so refunds match exactly
+            throw new ConcurrencyFailureException("Showtime " + showTimeId + ": read " + tickets.size()
+                    + " tickets for refund but canceled " + canceled);
+        }
+        return tickets;
+    }
+
+    /**
+     * Hands each ticket to {@code refunds}, then clears the refund-pending mark of those it accepted. A ticket the
+     * consumer throws on is logged and stays pending without stopping the others.
+     *
+     * @return The number of tickets still refund-pending.
+     */
+    private int handOverRefunds(Integer showTimeId, List<TicketRepository.RefundableTicket> tickets,
+                                Consumer<TicketRepository.RefundableTicket> refunds) {
+        List<Integer> handedOver = new ArrayList<>(tickets.size());
+        for (TicketRepository.RefundableTicket ticket : tickets) {
+            try {
+                refunds.accept(ticket);
+                handedOver.add(ticket.getTicketID());
+            } catch (RuntimeException e) {
+                log.error("Refund of ticket {} of canceled showtime {} failed; it stays pending", ticket.getTicketID(),
+                        showTimeId, e);
+            }
+        }
+        if (handedOver.isEmpty()) {
+            return tickets.size();
+        }
+        try {
+            claimTransactions.execute(() -> {
+                // Chunked to stay below SQL Server's 2100 parameters per statement
+                for (int from = 0; from < handedOver.size(); from += REFUND_ACKS_PER_UPDATE) {
+                    ticketRepository.acknowledgeRefunds(
+                            handedOver.subList(from, Math.min(from + REFUND_ACKS_PER_UPDATE, handedOver.size())));
+                }
+                return null;
+            });
+        } catch (RuntimeException e) {
+            log.error("Refunds of {} tickets of canceled showtime {} were handed over but not acknowledged; "
+                    + "a repeated cancellation hands them over again", handedOver.size(), showTimeId, e);
+            return tickets.size();
+        }
+        return tickets.size() - handedOver.size();
+    }
+
+    /**
+     * Outcome of {@link #cancelShowTime}: how many tickets were canceled, what they cost in total, and how many
+     * refunds are still pending because their hand-over failed.
+     */
+    public record ShowTimeCancellation(Integer showTimeId, int canceledTickets, BigDecimal refundTotal,
+                                       int refundsPending) {
+    }
+}
@@ -0,0 +1,171 @@
+package com.movieticketsystem.movieticketapp.service;
+
+import com.movieticketsystem.movieticketapp.repository.MovieRepository;
+import com.movieticketsystem.movieticketapp.repository.ShowTimeRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Read-through cache for the catalog pages: the movie list, each movie's showtimes and the showtime page header.
+ * The catalog changes a few times a day but is read on every page view, so entries are read-only projections
+ * loaded on first use and kept until a Movie or ShowTime changes (see {@link CatalogChangeListener}) or
+ * {@code app.catalog.ttl} passes, which bounds staleness for changes made on other nodes or outside the app.
+ *
+ * Available seats are never cached: listings take the live count from SeatManager and only fall back to
+ * ShowTime.availableSeats for showtimes that are no longer in memory.
+ * Lookups are counted as {@code cache.gets} (tags cache, result=hit/miss) and entries as {@code cache.size}.
+ */
+@Component
+public class CatalogCache implements SeatTransitionListener {
+
+    private static final String ALL_MOVIES = "all";
+
+    private final MovieRepository movieRepository;
+    private final ShowTimeRepository showTimeRepository;
+    private final SeatManager seatManager;
+    private final long ttlNanos;
+    // Bumped by every invalidation; a load that raced with one is returned but not cached
+    private final AtomicLong generation = new AtomicLong();
+
+    private final Section<String, List<MovieRepository.MovieSummary>> movies;
+    private final Section<Integer, List<ShowTimeRepository.ShowTimeListing>> showTimesByMovie;
+    private final Section<Integer, ShowTimeRepository.ShowTimeSummary> showTimeSummaries;
+
+    @Autowired
+    public CatalogCache(MovieRepository movieRepository, ShowTimeRepository showTimeRepository, SeatManager seatManager,
+                        MeterRegistry meterRegistry, @Value("${app.catalog.ttl:5m}") Duration ttl) {
+        this.movieRepository = movieRepository;
+        this.showTimeRepository = showTimeRepository;
+        this.seatManager = seatManager;
+        this.ttlNanos = ttl.toNanos();
+        this.movies = new Section<>("catalog.movies", meterRegistry);
+        this.showTimesByMovie = new Section<>("catalog.showtimes", meterRegistry);
+        this.showTimeSummaries = new Section<>("catalog.showtime-headers", meterRegistry);
+        seatManager.addTransitionListener(this);
+    }
+
+    public List<MovieRepository.MovieSummary> getMovies() {
+        return movies.get(ALL_MOVIES, key -> movieRepository.findAllSummaries());
+    }
+
+    public Optional<MovieRepository.MovieSummary> getMovie(Integer movieId) {
+        return getMovies().stream().filter(movie -> movie.getMovieID().equals(movieId)).findFirst();
+    }
+
+    /**
+     * A movie's showtimes in start order, with live available-seat counts.
+     */
+    public List<ShowTimeEntry> getShowTimes(Integer movieId) {
+        return showTimesByMovie.get(movieId, showTimeRepository::findListingsByMovie).stream()
+                .map(listing -> {
+                    int available = seatManager.countAvailableSeats(listing.getShowTimeID());
+                    return new ShowTimeEntry(listing.getShowTimeID(), listing.getShowTimeDateTime(),
+                            listing.getTheaterNumber(), listing.getTotalSeats(),
+                            available >= 0 ? available : listing.getAvailableSeats());
+                })
+                .toList();
+    }
+
+    public Optional<ShowTimeRepository.ShowTimeSummary> getShowTimeSummary(Integer showTimeId) {
+        return Optional.ofNullable(showTimeSummaries.get(showTimeId,
+                id -> showTimeRepository.findSummaryById(id).orElse(null)));
+    }
+
+    /**
+     * The current ticket price of a showtime, i.e. its movie's price, served from the cached catalog.
+     */
+    public Optional<BigDecimal> getTicketPrice(Integer showTimeId) {
+        return getShowTimeSummary(showTimeId)
+                .flatMap(summary -> getMovie(summary.getMovieID()))
+                .map(MovieRepository.MovieSummary::getPrice);
+    }
+
+    /**
+     * Drops every entry. Called once a change to movies or showtimes has committed.
+     */
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        movies.clear();
+        showTimesByMovie.clear();
+        showTimeSummaries.clear();
+    }
+
+    @Override
+    public void onSeatChanged(int showTimeId, int seatId) {
+    }
+
+    @Override
+    public void onShowTimeEvicted(int showTimeId) {
+        showTimeSummaries.remove(showTimeId); // over; its page is rarely opened again
+    }
+
+    /**
+     * A showtime as listed on the movie page.
+     */
+    public record ShowTimeEntry(Integer showTimeID, LocalDateTime showTimeDateTime, Integer theaterNumber,
+                                Integer totalSeats, Integer availableSeats) {
+    }
+
+    private record Entry<V>(V value, long loadedAt) {
+    }
+
+    private final class Section<K, V> {
+        private final ConcurrentHashMap<K, Entry<V>> entries = new ConcurrentHashMap<>();
+        private final Counter hits;
+        private final Counter misses;
+
+        private Section(String name, MeterRegistry registry) {
+            this.hits = Counter.builder("cache.gets").tag("cache", name).tag("result", "hit")
+                    .description("Catalog cache lookups").register(registry);
+            this.misses = Counter.builder("cache.gets").tag("cache", name).tag("result", "miss")
+                    .description("Catalog cache lookups").register(registry);
+            Gauge.builder("cache.size", entries, Map::size).tag("cache", name)
+                    .description("Entries in the catalog cache").register(registry);
+        }
+
+        /**
+         * Loaded outside the map's bin lock, as a racing load only costs a duplicate query.
+         * Missing values (null) are not cached.
+         */
+        V get(K key, Function<K, V> loader) {
+            long now = System.nanoTime();
+            Entry<V> entry = entries.get(key);
+            if (entry != null && now - entry.loadedAt() < ttlNanos) {
+                hits.increment();
+                return entry.value();
+            }
+            misses.increment();
+            long generationBefore = generation.get();
+            V value = loader.apply(key);
+            if (value != null) {
+                entries.put(key, new Entry<>(value, now));
+                if (generation.get() != generationBefore) {
+                    entries.remove(key); // may have read the state before an invalidation
+                }
+            }
+            return value;
+        }
+
+        void remove(K key) {
+            entries.remove(key);
+        }
+
+        void clear() {
+            entries.clear();
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.movieticketsystem.movieticketapp.service;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * JPA entity listener on Movie and ShowTime that clears the CatalogCache once the change has committed.
+ * Bulk JPQL updates (e.g. the AvailableSeats counter) bypass entity listeners, which is fine as available
+ * seats are not cached. Hibernate creates it through Spring, so the cache is looked up lazily: the cache
+ * depends on repositories, which depend on the EntityManagerFactory that builds this listener.
+ */
+@Component
+public class CatalogChangeListener {
+
+    private final ObjectProvider<CatalogCache> catalogCache;
+
+    @Autowired
+    public CatalogChangeListener(ObjectProvider<CatalogCache> catalogCache) {
+        this.catalogCache = catalogCache;
+    }
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void catalogChanged(Object entity) {
+        SeatClaimTransactions.afterCommit(() -> {
+            CatalogCache cache = catalogCache.getIfAvailable();
+            if (cache != null) {
+                cache.invalidateAll();
+            }
+        });
+    }
+}
@@ -0,0 +1,90 @@
+package com.movieticketsystem.movieticketapp.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClient;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Calls the internal API of the node that owns a showtime (see ClusterController) in partitioned mode.
+ * Failures surface as {@link org.springframework.web.client.RestClientException}; nothing is retried, since the
+ * owner may already have applied the request (callers pass idempotency keys through for that reason).
+ */
+@Component
+public class ClusterClient {
+
+    public static final String SECRET_HEADER = "X-Cluster-Secret";
+
+    private static final ParameterizedTypeReference<List<BookingRouter.BookedTicket>> TICKETS =
+            new ParameterizedTypeReference<>() {
+            };
+
+    private final RestClient restClient;
+
+    @Autowired
+    public ClusterClient(@Value("${app.cluster.secret:}") String secret,
+                         @Value("${app.cluster.connect-timeout:1s}") Duration connectTimeout,
+                         @Value("${app.cluster.read-timeout:5s}") Duration readTimeout) {
+        HttpClient httpClient = HttpClient.newBuilder().connectTimeout(connectTimeout).build();
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(httpClient);
+        requestFactory.setReadTimeout(readTimeout);
+        this.restClient = RestClient.builder()
+                .requestFactory(requestFactory)
+                .defaultHeader(SECRET_HEADER, secret)
+                .build();
+    }
+
+    public List<BookingRouter.BookedTicket> book(String owner, int showTimeId, BookingRouter.Command command) {
+        return post(owner, "/internal/cluster/showtimes/" + showTimeId + "/bookings", command).body(TICKETS);
+    }
+
+    public List<BookingRouter.BookedTicket> bookBestAvailable(String owner, int showTimeId, BookingRouter.Command command) {
+        return post(owner, "/internal/cluster/showtimes/" + showTimeId + "/best-available", command).body(TICKETS);
+    }
+
+    public boolean hold(String owner, int showTimeId, BookingRouter.Command command) {
+        return Boolean.TRUE.equals(post(owner, "/internal/cluster/showtimes/" + showTimeId + "/holds", command).body(Boolean.class));
+    }
+
+    public boolean cancel(String owner, int showTimeId, int ticketId, BookingRouter.Command command) {
+        return Boolean.TRUE.equals(post(owner, "/internal/cluster/showtimes/" + showTimeId + "/tickets/" + ticketId + "/cancel",
+                command).body(Boolean.class));
+    }
+
+    public boolean closeSales(String owner, int showTimeId) {
+        return Boolean.TRUE.equals(restClient.post()
+                .uri(owner + "/internal/cluster/showtimes/{showTimeId}/close-sales", showTimeId)
+                .retrieve()
+                .body(Boolean.class));
+    }
+
+    public void dropCanceledShowTime(String owner, int showTimeId) {
+        restClient.post()
+                .uri(owner + "/internal/cluster/showtimes/{showTimeId}/canceled", showTimeId)
+                .retrieve()
+                .toBodilessEntity();
+    }
+
+    public BookingRouter.SeatState seatState(String owner, int showTimeId, String sessionId) {
+        return restClient.get()
+                .uri(owner + "/internal/cluster/showtimes/{showTimeId}/state?sessionId={sessionId}", showTimeId,
+                        sessionId != null ? sessionId : "")
+                .retrieve()
+                .body(BookingRouter.SeatState.class);
+    }
+
+    private RestClient.ResponseSpec post(String owner, String path, BookingRouter.Command command) {
+        return restClient.post()
+                .uri(owner + path)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(command)
+                .retrieve();
+    }
+}
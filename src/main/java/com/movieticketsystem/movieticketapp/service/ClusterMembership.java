@@ -0,0 +1,203 @@
+package com.movieticketsystem.movieticketapp.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Partitioned mode ({@code app.cluster.enabled=true}): every showtime is owned by exactly one node, and only the
+ * owner's SeatManager decides bookings for it. Ownership comes from a consistent-hash ring over the member list,
+ * so adding or removing a node moves only the showtimes that hashed to it.
+ *
+ * Members are base URLs, either listed in {@code app.cluster.members} or read from {@code app.cluster.members-file}
+ * (one per line, {@code #} comments), which is re-read when it changes. {@code app.cluster.self} names this node.
+ * All nodes share one database and the {@code app.cluster.secret} of the internal API. Several local JVMs work
+ * as a cluster, e.g.
+ * <pre>
+ *   java -jar app.jar --server.port=8080 --app.cluster.enabled=true --app.cluster.self=http://localhost:8080 \
+ *        --app.cluster.members=http://localhost:8080,http://localhost:8081 --app.cluster.secret=change-me
+ *   java -jar app.jar --server.port=8081 --app.cluster.enabled=true --app.cluster.self=http://localhost:8081 \
+ *        --app.cluster.members=http://localhost:8080,http://localhost:8081 --app.cluster.secret=change-me \
+ *        --app.load-demo-data=false
+ * </pre>
+ */
+@Component
+public class ClusterMembership {
+
+    private static final Logger log = LoggerFactory.getLogger(ClusterMembership.class);
+
+    private final boolean enabled;
+    private final String self;
+    private final Path membersFile;
+    private final int virtualNodes;
+
+    private volatile Ring ring;
+    private volatile FileTime membersFileModified;
+
+    @Autowired
+    public ClusterMembership(@Value("${app.cluster.enabled:false}") boolean enabled,
+                             @Value("${app.cluster.self:}") String self,
+                             @Value("${app.cluster.members:}") List<String> members,
+                             @Value("${app.cluster.members-file:}") String membersFile,
+                             @Value("${app.cluster.virtual-nodes:160}") int virtualNodes) {
+        this.enabled = enabled;
+        this.self = normalize(self);
+        this.membersFile = membersFile.isBlank() ? null : Path.of(membersFile);
+        this.virtualNodes = virtualNodes;
+        if (!enabled) {
+            return;
+        }
+        if (this.membersFile != null) {
+            reloadMembersFile();
+        } else {
+            this.ring = newRing(members);
+        }
+        if (ring == null) {
+            throw new IllegalStateException("app.cluster.enabled is set but no members are configured");
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public String getSelf() {
+        return self;
+    }
+
+    /**
+     * Base URL of the node that owns the showtime.
+     */
+    public String ownerOf(int showTimeId) {
+        return ring.ownerOf(mix(showTimeId));
+    }
+
+    /**
+     * True if this node decides bookings for the showtime; always true outside partitioned mode.
+     */
+    public boolean isLocal(int showTimeId) {
+        return !enabled || self.equals(ownerOf(showTimeId));
+    }
+
+    /**
+     * Picks up edits of the members file. A file that cannot be read keeps the current ring.
+     */
+    @Scheduled(fixedDelayString = "${app.cluster.members-reload-ms:5000}")
+    public void reloadMembersFile() {
+        if (!enabled || membersFile == null) {
+            return;
+        }
+        try {
+            FileTime modified = Files.getLastModifiedTime(membersFile);
+            if (modified.equals(membersFileModified)) {
+                return;
+            }
+            List<String> members = Files.readAllLines(membersFile, StandardCharsets.UTF_8).stream()
+                    .map(line -> line.replaceFirst("#.*", "").trim())
+                    .filter(line -> !line.isEmpty())
+                    .toList();
+            Ring updated = newRing(members);
+            if (updated != null) {
+                ring = updated;
+                membersFileModified = modified;
+            }
+        } catch (IOException e) {
+            if (ring == null) {
+                throw new UncheckedIOException("Cannot read cluster members file " + membersFile, e);
+            }
+            log.warn("Cannot re-read cluster members file {}; keeping the current members: {}", membersFile, e.getMessage());
+        }
+    }
+
+    private Ring newRing(List<String> configured) {
+        String[] members = configured.stream().map(ClusterMembership::normalize).filter(m -> !m.isEmpty())
+                .distinct().sorted().toArray(String[]::new);
+        if (members.length == 0) {
+            return null;
+        }
+        if (!Arrays.asList(members).contains(self)) {
+            throw new IllegalStateException("app.cluster.self " + self + " is not one of the members " + Arrays.toString(members));
+        }
+        log.info("Cluster members: {} (this node: {})", Arrays.toString(members), self);
+        return Ring.of(members, virtualNodes);
+    }
+
+    private static String normalize(String url) {
+        String trimmed = url.trim();
+        return trimmed.endsWith("/") ? trimmed.substring(0, trimmed.length() - 1) : trimmed;
+    }
+
+    /**
+     * Spreads consecutive showtime IDs over the ring (murmur3 finalizer).
+     */
+    private static long mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return key;
+    }
+
+    /**
+     * Immutable hash ring: {@code virtualNodes} points per member, sorted, owner is the first point at or after the key.
+     */
+    private static final class Ring {
+        private final long[] points;
+        private final String[] owners;
+
+        private Ring(long[] points, String[] owners) {
+            this.points = points;
+            this.owners = owners;
+        }
+
+        static Ring of(String[] members, int virtualNodes) {
+            long[][] pointAndMember = new long[members.length * virtualNodes][];
+            try {
+                MessageDigest md5 = MessageDigest.getInstance("MD5");
+                for (int m = 0; m < members.length; m++) {
+                    for (int v = 0; v < virtualNodes; v++) {
+                        byte[] digest = md5.digest((members[m] + "#" + v).getBytes(StandardCharsets.UTF_8));
+                        long point = 0;
+                        for (int i = 0; i < Long.BYTES; i++) {
+                            point = point << 8 | (digest[i] & 0xFF);
+                        }
+                        pointAndMember[m * virtualNodes + v] = new long[]{point, m};
+                    }
+                }
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e); // every JRE ships MD5
+            }
+            Arrays.sort(pointAndMember, (a, b) -> Long.compare(a[0], b[0]));
+            long[] points = new long[pointAndMember.length];
+            String[] owners = new String[pointAndMember.length];
+            for (int i = 0; i < points.length; i++) {
+                points[i] = pointAndMember[i][0];
+                owners[i] = members[(int) pointAndMember[i][1]];
+            }
+            return new Ring(points, owners);
+        }
+
+        String ownerOf(long hash) {
+            int position = Arrays.binarySearch(points, hash);
+            if (position < 0) {
+                position = -position - 1;
+            }
+            return owners[position == points.length ? 0 : position];
+        }
+    }
+}
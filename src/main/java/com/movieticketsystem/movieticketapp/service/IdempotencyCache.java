@@ -0,0 +1,106 @@
+package com.movieticketsystem.movieticketapp.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Supplier;
+
+/**
+ * Remembers the results of requests sent with a client-chosen idempotency key, so a retried or
+ * double-submitted request gets the original answer instead of running again.
+ *
+ * Entries live for {@code app.idempotency.ttl} and at most {@code app.idempotency.max-entries} are kept;
+ * since every entry has the same TTL, insertion order is expiry order and the oldest entries go first.
+ * A duplicate that arrives while the original is still running waits for its result. Failed requests
+ * (exceptions) are not remembered, so they can be retried with the same key.
+ */
+@Component
+public class IdempotencyCache {
+
+    private final long ttlNanos;
+    private final int maxEntries;
+
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<Entry> insertionOrder = new ConcurrentLinkedQueue<>();
+
+    @Autowired
+    public IdempotencyCache(@Value("${app.idempotency.ttl:1h}") Duration ttl,
+                            @Value("${app.idempotency.max-entries:100000}") int maxEntries) {
+        this.ttlNanos = ttl.toNanos();
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Runs {@code action} once per key and answers repeats with its result.
+     *
+     * @param key         client-chosen idempotency key; null or blank runs the action without deduplication.
+     * @param fingerprint what the request asked for; reusing a key for a different request is rejected.
+     * @throws IllegalArgumentException if the key was already used with a different fingerprint.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T execute(String key, String fingerprint, Supplier<T> action) {
+        if (key == null || key.isBlank()) {
+            return action.get();
+        }
+        long now = System.nanoTime();
+        Entry mine = new Entry(key, fingerprint, now + ttlNanos);
+        Entry existing = entries.putIfAbsent(key, mine);
+        while (existing != null && existing.isExpired(now)) {
+            existing = entries.replace(key, existing, mine) ? null : entries.putIfAbsent(key, mine);
+        }
+        if (existing != null) {
+            if (!existing.fingerprint.equals(fingerprint)) {
+                throw new IllegalArgumentException("Idempotency key was already used for a different request");
+            }
+            try {
+                return (T) existing.result.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+
+        insertionOrder.add(mine);
+        evict(now);
+        try {
+            T result = action.get();
+            mine.result.complete(result);
+            return result;
+        } catch (RuntimeException e) {
+            entries.remove(key, mine);
+            mine.result.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private void evict(long now) {
+        Entry oldest;
+        while ((oldest = insertionOrder.peek()) != null && (oldest.isExpired(now) || entries.size() > maxEntries)) {
+            if (insertionOrder.remove(oldest)) {
+                entries.remove(oldest.key, oldest);
+            }
+        }
+    }
+
+    private static final class Entry {
+        private final String key;
+        private final String fingerprint;
+        private final long expiresAtNanos;
+        private final CompletableFuture<Object> result = new CompletableFuture<>();
+
+        private Entry(String key, String fingerprint, long expiresAtNanos) {
+            this.key = key;
+            this.fingerprint = fingerprint;
+            this.expiresAtNanos = expiresAtNanos;
+        }
+
+        boolean isExpired(long now) {
+            return now - expiresAtNanos >= 0;
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.movieticketsystem.movieticketapp.service;
+
+/**
+ * Thrown inside a booking transaction when the showtime's sales were closed (e.g. it was canceled) after its
+ * seats were claimed, so the tickets written so far roll back. Callers that own the transaction answer the
+ * booking with no tickets; inside a caller's transaction it propagates so that transaction rolls back too.
+ */
+class SalesClosedException extends IllegalStateException {
+
+    SalesClosedException(Integer showTimeId) {
+        super("Sales of showtime " + showTimeId + " are closed");
+    }
+}
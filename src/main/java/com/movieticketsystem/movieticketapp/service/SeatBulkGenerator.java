@@ -0,0 +1,66 @@
+package com.movieticketsystem.movieticketapp.service;
+
+import com.movieticketsystem.movieticketapp.model.Seat;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Creates the seat layout of a theater in bulk; every showtime in the theater then uses these seats.
+ * Seat uses IDENTITY ids, which stops Hibernate from batching inserts, so the rows are written with a
+ * single JDBC batch and their generated IDs read back with one query. The layout is then registered
+ * with SeatManager in one call.
+ */
+@Component
+public class SeatBulkGenerator {
+
+    private static final String INSERT_SEAT = "INSERT INTO Seats (TheaterNumber, SeatRow, SeatNumber) VALUES (?, ?, ?)";
+    private static final String SELECT_SEATS =
+            "SELECT SeatID, SeatRow, SeatNumber FROM Seats WHERE TheaterNumber = ? ORDER BY SeatRow, SeatNumber";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final SeatManager seatManager;
+
+    @Autowired
+    public SeatBulkGenerator(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                             SeatManager seatManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.seatManager = seatManager;
+    }
+
+    /**
+     * Generates a rectangular seat layout (rows {@code firstRow}..{@code lastRow}, numbers 1..{@code seatsPerRow})
+     * for a theater and registers it with SeatManager. The generated seats must be new to the theater; extending
+     * an existing layout is allowed, and its showtimes pick the new seats up when they are next loaded.
+     *
+     * @param theaterNumber The theater, as in ShowTime.theaterNumber.
+     * @return All seats of the theater, ordered by row and seat number.
+     */
+    public List<Seat> generateSeats(Integer theaterNumber, char firstRow, char lastRow, int seatsPerRow) {
+        List<Object[]> rows = new ArrayList<>((lastRow - firstRow + 1) * seatsPerRow);
+        for (char row = firstRow; row <= lastRow; row++) {
+            for (int number = 1; number <= seatsPerRow; number++) {
+                rows.add(new Object[]{theaterNumber, String.valueOf(row), number});
+            }
+        }
+
+        List<Seat> seats = transactionTemplate.execute(status -> {
+            jdbcTemplate.batchUpdate(INSERT_SEAT, rows);
+            return jdbcTemplate.query(SELECT_SEATS, (rs, rowNum) -> {
+                Seat seat = new Seat(theaterNumber, rs.getString("SeatRow"), rs.getInt("SeatNumber"));
+                seat.setSeatID(rs.getInt("SeatID"));
+                return seat;
+            }, theaterNumber);
+        });
+
+        seatManager.setTheaterLayout(theaterNumber, seats);
+        return seats;
+    }
+}
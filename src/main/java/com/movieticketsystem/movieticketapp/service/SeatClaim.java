@@ -0,0 +1,42 @@
+package com.movieticketsystem.movieticketapp.service;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Seats a booking has claimed in SeatManager but not yet committed to the database.
+ * Releasing is one-shot, so the failure paths of a booking can all call {@link #release()}
+ * without ever freeing a seat that somebody else claimed afterwards.
+ */
+final class SeatClaim {
+
+    private final SeatManager seatManager;
+    private final Integer showTimeId;
+    private final List<Integer> seatIds;
+    private final AtomicBoolean released = new AtomicBoolean();
+
+    SeatClaim(SeatManager seatManager, Integer showTimeId, List<Integer> seatIds) {
+        this.seatManager = seatManager;
+        this.showTimeId = showTimeId;
+        this.seatIds = seatIds;
+    }
+
+    Integer getShowTimeId() {
+        return showTimeId;
+    }
+
+    List<Integer> getSeatIds() {
+        return seatIds;
+    }
+
+    /**
+     * Makes the claimed seats available again. Only the first call has any effect.
+     */
+    void release() {
+        if (released.compareAndSet(false, true)) {
+            for (Integer seatId : seatIds) {
+                seatManager.tryCancelSeat(showTimeId, seatId);
+            }
+        }
+    }
+}
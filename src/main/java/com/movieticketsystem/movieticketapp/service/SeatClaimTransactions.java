@@ -0,0 +1,179 @@
+package com.movieticketsystem.movieticketapp.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.SQLTransientException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * Runs the database part of a booking so that the in-memory SeatManager state follows the transaction outcome.
+ *
+ * When the caller already has a transaction, the work joins it and a TransactionSynchronization
+ * releases the seat claim if that transaction does not commit. Otherwise each attempt gets its own
+ * transaction; transient failures (deadlocks, lock timeouts, dropped connections) are retried with
+ * exponential backoff while the claim is still held, and the claim is released once the booking finally fails.
+ * Transaction outcomes are counted as {@code booking.transactions} (committed / rolled_back / unknown),
+ * retries as {@code booking.transaction.retries}.
+ */
+@Component
+public class SeatClaimTransactions {
+
+    private static final Logger log = LoggerFactory.getLogger(SeatClaimTransactions.class);
+
+    private final TransactionTemplate transactionTemplate;
+    private final int maxAttempts;
+    private final long initialBackoffMillis;
+    private final Counter committed;
+    private final Counter rolledBack;
+    private final Counter unknownOutcome;
+    private final Counter retries;
+
+    @Autowired
+    public SeatClaimTransactions(PlatformTransactionManager transactionManager, MeterRegistry meterRegistry,
+                                 @Value("${app.booking.retry.max-attempts:3}") int maxAttempts,
+                                 @Value("${app.booking.retry.initial-backoff-ms:20}") long initialBackoffMillis) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.initialBackoffMillis = initialBackoffMillis;
+        this.committed = outcomeCounter(meterRegistry, "committed");
+        this.rolledBack = outcomeCounter(meterRegistry, "rolled_back");
+        this.unknownOutcome = outcomeCounter(meterRegistry, "unknown");
+        this.retries = Counter.builder("booking.transaction.retries")
+                .description("Booking transactions retried after a transient database failure")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Persists a booking for seats already claimed in SeatManager.
+     * The claim is released if the work throws, the commit fails, or an enclosing transaction rolls back.
+     */
+    <T> T executeWithClaim(SeatClaim claim, Supplier<T> work) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    recordOutcome(status);
+                    if (status != STATUS_COMMITTED) {
+                        claim.release();
+                    }
+                }
+            });
+            return work.get();
+        }
+        try {
+            return executeWithRetry(work);
+        } catch (RuntimeException e) {
+            claim.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Runs the work in a transaction (joining the caller's, if any), retrying transient failures.
+     */
+    <T> T execute(Supplier<T> work) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return work.get();
+        }
+        return executeWithRetry(work);
+    }
+
+    /**
+     * Runs the action once the current transaction has committed, or right away without a transaction.
+     * Used to release in-memory seats only after a cancellation is durable.
+     * A failing action is logged and swallowed: the transaction has committed, so the caller must not see a
+     * failure, and the retry loop must not run the work a second time.
+     */
+    static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            runAfterCommit(action);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                runAfterCommit(action);
+            }
+        });
+    }
+
+    private static void runAfterCommit(Runnable action) {
+        try {
+            action.run();
+        } catch (RuntimeException e) {
+            log.error("Action after a committed booking transaction failed", e);
+        }
+    }
+
+    private <T> T executeWithRetry(Supplier<T> work) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(transaction -> {
+                    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                        @Override
+                        public void afterCompletion(int status) {
+                            recordOutcome(status);
+                        }
+                    });
+                    return work.get();
+                });
+            } catch (RuntimeException e) {
+                if (attempt >= maxAttempts || !isRetryable(e)) {
+                    throw e;
+                }
+                backOff(attempt, e);
+            }
+        }
+    }
+
+    private void backOff(int attempt, RuntimeException cause) {
+        long base = initialBackoffMillis << (attempt - 1);
+        long delay = base + ThreadLocalRandom.current().nextLong(base + 1); // full jitter on top of the base delay
+        retries.increment();
+        log.warn("Retrying booking transaction after {} ms (attempt {} failed: {})", delay, attempt, cause.getMessage());
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw cause;
+        }
+    }
+
+    private void recordOutcome(int status) {
+        switch (status) {
+            case TransactionSynchronization.STATUS_COMMITTED -> committed.increment();
+            case TransactionSynchronization.STATUS_ROLLED_BACK -> rolledBack.increment();
+            default -> unknownOutcome.increment();
+        }
+    }
+
+    private static Counter outcomeCounter(MeterRegistry registry, String outcome) {
+        return Counter.builder("booking.transactions")
+                .description("Outcome of booking and cancellation transactions")
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+
+    static boolean isRetryable(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof TransientDataAccessException || t instanceof RecoverableDataAccessException
+                    || t instanceof SQLTransientException) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,255 @@
+package com.movieticketsystem.movieticketapp.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps seats reserved for a browser session while the buyer is checking out.
+ * A held seat is claimed in SeatManager exactly like a booked one, so nobody else can take it;
+ * the hold is either converted into a ticket by BookingService or released when its TTL runs out.
+ * Expiry is driven by a DelayQueue, so the sweeper only ever touches holds that are actually due.
+ */
+@Component
+public class SeatHoldManager {
+
+    private static final Logger log = LoggerFactory.getLogger(SeatHoldManager.class);
+
+    private final SeatManager seatManager;
+    private final Duration ttl;
+    private final int sweepBatchSize;
+
+    // (ShowTimeID, SeatID) -> current hold
+    private final ConcurrentHashMap<Long, SeatHold> holds = new ConcurrentHashMap<>();
+    // SessionID -> holds owned by that session, for rendering the checkout panel
+    private final ConcurrentHashMap<String, Set<SeatHold>> holdsBySession = new ConcurrentHashMap<>();
+    private final DelayQueue<SeatHold> expiryQueue = new DelayQueue<>();
+
+    @Autowired
+    public SeatHoldManager(SeatManager seatManager,
+                           @Value("${app.seat-hold.ttl:5m}") Duration ttl,
+                           @Value("${app.seat-hold.sweep-batch-size:500}") int sweepBatchSize) {
+        this.seatManager = seatManager;
+        this.ttl = ttl;
+        this.sweepBatchSize = sweepBatchSize;
+    }
+
+    /**
+     * Holds the given seats for the session, all or nothing. The seats it does not hold yet are claimed in
+     * SeatManager first; only if that succeeds do the seats it already holds get a fresh TTL.
+     *
+     * @return true if every seat is now held by the session.
+     */
+    public boolean holdSeats(Integer showTimeId, Collection<Integer> seatIds, String sessionId) {
+        List<SeatHold> owned = new ArrayList<>(seatIds.size());
+        List<Integer> toClaim = new ArrayList<>(seatIds.size());
+        for (Integer seatId : seatIds) {
+            SeatHold current = holds.get(key(showTimeId, seatId));
+            if (current != null && current.sessionId.equals(sessionId)) {
+                owned.add(current);
+            } else {
+                toClaim.add(seatId);
+            }
+        }
+        if (!toClaim.isEmpty() && !seatManager.tryBookSeats(showTimeId, toClaim)) {
+            return false;
+        }
+
+        long expiresAtNanos = System.nanoTime() + ttl.toNanos();
+        List<Integer> lost = new ArrayList<>();
+        for (SeatHold current : owned) {
+            SeatHold refreshed = new SeatHold(showTimeId, current.seatId, sessionId, expiresAtNanos);
+            // replace() fails if the sweeper released the old hold meanwhile; the seat is then claimed afresh
+            if (holds.replace(current.key(), current, refreshed)) {
+                forgetSessionHold(current);
+                track(refreshed);
+            } else {
+                lost.add(current.seatId);
+            }
+        }
+        if (!lost.isEmpty() && !seatManager.tryBookSeats(showTimeId, lost)) {
+            // Someone took a seat in between; the holds refreshed above stay, as the session still has them
+            for (Integer seatId : toClaim) {
+                seatManager.tryCancelSeat(showTimeId, seatId);
+            }
+            return false;
+        }
+        toClaim.addAll(lost);
+        for (Integer seatId : toClaim) {
+            SeatHold hold = new SeatHold(showTimeId, seatId, sessionId, expiresAtNanos);
+            holds.put(hold.key(), hold);
+            track(hold);
+        }
+        return true;
+    }
+
+    public Duration getTtl() {
+        return ttl;
+    }
+
+    public boolean isHeldBy(Integer showTimeId, Integer seatId, String sessionId) {
+        SeatHold hold = holds.get(key(showTimeId, seatId));
+        return hold != null && hold.sessionId.equals(sessionId) && !hold.isExpired();
+    }
+
+    /**
+     * True if any session holds the seat, including holds that expired but have not been swept yet.
+     */
+    public boolean isHeld(Integer showTimeId, Integer seatId) {
+        return holds.containsKey(key(showTimeId, seatId));
+    }
+
+    /**
+     * Seat IDs the session currently holds for a showtime.
+     */
+    public List<Integer> heldSeatIds(Integer showTimeId, String sessionId) {
+        Set<SeatHold> sessionHolds = holdsBySession.get(sessionId);
+        List<Integer> seatIds = new ArrayList<>();
+        if (sessionHolds != null) {
+            for (SeatHold hold : sessionHolds) {
+                if (hold.showTimeId == showTimeId && !hold.isExpired()) {
+                    seatIds.add(hold.seatId);
+                }
+            }
+        }
+        return seatIds;
+    }
+
+    /**
+     * Converts the session's holds on all given seats into plain SeatManager claims, all or nothing.
+     * On success the seats stay booked in memory and the caller owns them; the holds are gone.
+     *
+     * @return true if the session held every seat and the holds were taken over.
+     */
+    public boolean claimHolds(Integer showTimeId, Collection<Integer> seatIds, String sessionId) {
+        List<SeatHold> claimed = new ArrayList<>(seatIds.size());
+        for (Integer seatId : seatIds) {
+            SeatHold hold = holds.get(key(showTimeId, seatId));
+            if (hold == null || !hold.sessionId.equals(sessionId) || hold.isExpired()
+                    || !holds.remove(hold.key(), hold)) {
+                // Give back what was already taken over; those seats become free again
+                for (SeatHold taken : claimed) {
+                    seatManager.tryCancelSeat(taken.showTimeId, taken.seatId);
+                }
+                return false;
+            }
+            forgetSessionHold(hold);
+            claimed.add(hold);
+        }
+        return true;
+    }
+
+    /**
+     * Claims seats for a booking by the session, all or nothing: the seats it holds are taken over from their
+     * holds (see {@link #claimHolds}) and the others are claimed in SeatManager. On success the caller owns every
+     * seat, exactly as after {@code tryBookSeats}.
+     *
+     * @return true if every seat was claimed; otherwise nothing changed, apart from holds that had expired.
+     */
+    public boolean claimForBooking(Integer showTimeId, List<Integer> seatIds, String sessionId) {
+        List<Integer> held = new ArrayList<>(seatIds.size());
+        List<Integer> unheld = new ArrayList<>(seatIds.size());
+        for (Integer seatId : seatIds) {
+            (isHeldBy(showTimeId, seatId, sessionId) ? held : unheld).add(seatId);
+        }
+        if (!unheld.isEmpty() && !seatManager.tryBookSeats(showTimeId, unheld)) {
+            return false;
+        }
+        if (!claimHolds(showTimeId, held, sessionId)) {
+            // A hold expired since it was checked
+            for (Integer seatId : unheld) {
+                seatManager.tryCancelSeat(showTimeId, seatId);
+            }
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Releases expired holds in batches. Only holds whose delay has elapsed are drained from the queue.
+     */
+    @Scheduled(fixedDelayString = "${app.seat-hold.sweep-interval-ms:1000}")
+    public void releaseExpiredHolds() {
+        List<SeatHold> expired = new ArrayList<>(Math.min(sweepBatchSize, 64));
+        int released = 0;
+        while (expiryQueue.drainTo(expired, sweepBatchSize) > 0) {
+            for (SeatHold hold : expired) {
+                forgetSessionHold(hold);
+                // A hold that was converted or refreshed in the meantime is no longer the mapped value
+                if (holds.remove(hold.key(), hold)) {
+                    seatManager.tryCancelSeat(hold.showTimeId, hold.seatId);
+                    released++;
+                }
+            }
+            expired.clear();
+        }
+        if (released > 0) {
+            log.info("Released {} expired seat holds.", released);
+        }
+    }
+
+    private void track(SeatHold hold) {
+        holdsBySession.computeIfAbsent(hold.sessionId, k -> ConcurrentHashMap.newKeySet()).add(hold);
+        expiryQueue.add(hold);
+    }
+
+    private void forgetSessionHold(SeatHold hold) {
+        holdsBySession.computeIfPresent(hold.sessionId, (k, sessionHolds) -> {
+            sessionHolds.remove(hold);
+            return sessionHolds.isEmpty() ? null : sessionHolds;
+        });
+    }
+
+    private static long key(int showTimeId, int seatId) {
+        return ((long) showTimeId << 32) | (seatId & 0xFFFFFFFFL);
+    }
+
+    /**
+     * A single seat held by a session until {@code expiresAtNanos}. Identity-based equality on purpose:
+     * a refreshed hold is a new object, so stale queue entries never match the live mapping.
+     */
+    private static final class SeatHold implements Delayed {
+        private final int showTimeId;
+        private final int seatId;
+        private final String sessionId;
+        private final long expiresAtNanos;
+
+        private SeatHold(int showTimeId, int seatId, String sessionId, long expiresAtNanos) {
+            this.showTimeId = showTimeId;
+            this.seatId = seatId;
+            this.sessionId = sessionId;
+            this.expiresAtNanos = expiresAtNanos;
+        }
+
+        long key() {
+            return SeatHoldManager.key(showTimeId, seatId);
+        }
+
+        boolean isExpired() {
+            return System.nanoTime() - expiresAtNanos >= 0;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(expiresAtNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(getDelay(TimeUnit.NANOSECONDS), other.getDelay(TimeUnit.NANOSECONDS));
+        }
+    }
+}
@@ -1,31 +1,76 @@
 package com.movieticketsystem.movieticketapp.service;
 
 import com.movieticketsystem.movieticketapp.model.Seat;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.stream.Collectors;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * Manages the in-memory state of seats for concurrent booking.
- * Uses ConcurrentHashMap to store seat availability (AtomicBoolean) for each showtime.
- * The key for the inner map is a unique seat identifier (e.g., "A1", "B5").
+ * Each showtime is backed by a {@link ShowTimeSeats} engine that keeps seat availability
+ * as a CAS-updated bitmap indexed by a dense seat ordinal. Seats belong to a theater's layout; showtimes loaded
+ * through {@link #loadShowTime(Integer, Integer, int[])} share that theater's seat index, so each one only adds
+ * its bitmap.
+ * With a {@link ShowTimeLoader} set, a showtime that is not in memory is loaded on first access; concurrent
+ * first accesses share one load. Showtimes that are over are dropped with {@link #evictShowTime(Integer)}; a canceled
+ * screening has its sales closed for good with {@link #closeSales(Integer)}.
+ * Claim attempts are counted per showtime as {@code seat.claims} with outcome "claimed" or "conflict".
  */
 @Component
 public class SeatManager {
 
-    // Outer map: ShowTimeID -> (Inner map: SeatID (from DB) -> AtomicBoolean (isBooked))
-    private final ConcurrentHashMap<Integer, ConcurrentHashMap<Integer, AtomicBoolean>> showtimeSeatAvailability;
-    // Store actual Seat objects for quick lookup
-    private final ConcurrentHashMap<Integer, ConcurrentHashMap<Integer, Seat>> showtimeSeats;
-
+    // ShowTimeID -> compact seat availability engine for that showtime
+    private final ConcurrentHashMap<Integer, ShowTimeSeats> showtimeSeats;
+    private final CopyOnWriteArrayList<SeatTransitionListener> transitionListeners = new CopyOnWriteArrayList<>();
+    private final MeterRegistry meterRegistry;
+    // ShowTimeID -> claim counters, resolved once so the booking path skips the registry lookup
+    private final ConcurrentHashMap<Integer, ClaimCounters> claimCounters = new ConcurrentHashMap<>();
+    // ShowTimeID -> load in progress, so concurrent first accesses wait for one load instead of each querying
+    private final ConcurrentHashMap<Integer, CompletableFuture<ShowTimeSeats>> loading = new ConcurrentHashMap<>();
+    private volatile ShowTimeLoader showTimeLoader;
+    // TheaterNumber -> seat index shared by the showtimes in that theater
+    private final ConcurrentHashMap<Integer, ShowTimeSeats.SeatIndex> theaterLayouts = new ConcurrentHashMap<>();
 
+    /**
+     * Standalone manager with metrics kept in a private registry (tools and benchmarks).
+     */
     public SeatManager() {
-        this.showtimeSeatAvailability = new ConcurrentHashMap<>();
+        this(new SimpleMeterRegistry());
+    }
+
+    @Autowired
+    public SeatManager(MeterRegistry meterRegistry) {
         this.showtimeSeats = new ConcurrentHashMap<>();
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Registers a listener that is told about every seat booked or released through this manager.
+     * Seat registration and bulk (re)loads of a showtime are reported once per call, not per seat.
+     */
+    public void addTransitionListener(SeatTransitionListener listener) {
+        transitionListeners.add(listener);
+    }
+
+    /**
+     * Sets the source for showtimes that are accessed but not in memory; without one they count as unknown.
+     */
+    public void setShowTimeLoader(ShowTimeLoader showTimeLoader) {
+        this.showTimeLoader = showTimeLoader;
     }
 
     /**
@@ -36,10 +81,67 @@ public class SeatManager {
      * @param seat The Seat object.
      */
     public void addSeat(Integer showTimeId, Seat seat) {
-        showtimeSeatAvailability.computeIfAbsent(showTimeId, k -> new ConcurrentHashMap<>())
-                .put(seat.getSeatID(), new AtomicBoolean(false)); // Initially not booked
-        showtimeSeats.computeIfAbsent(showTimeId, k -> new ConcurrentHashMap<>())
-                .put(seat.getSeatID(), seat);
+        showtimeSeats.computeIfAbsent(showTimeId, k -> new ShowTimeSeats()).addSeat(seat);
+        fireShowTimeReloaded(showTimeId);
+    }
+
+    /**
+     * Adds all seats of a showtime in one call, initializing them as available.
+     * Cheaper than calling {@link #addSeat(Integer, Seat)} per seat when a showtime is created.
+     *
+     * @param showTimeId The ID of the showtime.
+     * @param seats The Seat objects.
+     */
+    public void addSeats(Integer showTimeId, List<Seat> seats) {
+        showtimeSeats.computeIfAbsent(showTimeId, k -> new ShowTimeSeats()).addSeats(seats);
+        fireShowTimeReloaded(showTimeId);
+    }
+
+    /**
+     * Registers (or replaces) the seat layout of a theater. Showtimes loaded afterwards for that theater share it;
+     * showtimes already in memory keep the layout they were loaded with.
+     *
+     * @param theaterNumber The theater.
+     * @param seats All seats of the theater.
+     */
+    public void setTheaterLayout(Integer theaterNumber, List<Seat> seats) {
+        theaterLayouts.put(theaterNumber, ShowTimeSeats.SeatIndex.of(seats));
+    }
+
+    public boolean hasTheaterLayout(Integer theaterNumber) {
+        return theaterLayouts.containsKey(theaterNumber);
+    }
+
+    /**
+     * Replaces the in-memory state of a showtime with a bitmap over its theater's registered layout.
+     * Used by the start-up warm-up so that seats with active tickets start out booked.
+     *
+     * @param showTimeId The ID of the showtime.
+     * @param theaterNumber The showtime's theater; its layout must be registered with {@link #setTheaterLayout}.
+     * @param bookedSeatIds IDs of the seats that already have an active ticket.
+     * @return Estimated bytes of bookkeeping retained for this showtime.
+     */
+    public long loadShowTime(Integer showTimeId, Integer theaterNumber, int[] bookedSeatIds) {
+        ShowTimeSeats loaded = new ShowTimeSeats(theaterLayout(theaterNumber), bookedSeatIds);
+        showtimeSeats.put(showTimeId, loaded);
+        fireShowTimeReloaded(showTimeId);
+        return loaded.estimatedFootprintBytes();
+    }
+
+    /**
+     * Replaces the in-memory state of a whole showtime in one step, with a seat layout of its own
+     * (tools, tests and benchmarks that have no theater layouts).
+     *
+     * @param showTimeId The ID of the showtime.
+     * @param seats All seats of the showtime.
+     * @param bookedSeatIds IDs of the seats that already have an active ticket.
+     * @return Estimated bytes of bookkeeping retained for this showtime.
+     */
+    public long loadShowTime(Integer showTimeId, List<Seat> seats, int[] bookedSeatIds) {
+        ShowTimeSeats loaded = new ShowTimeSeats(seats, bookedSeatIds);
+        showtimeSeats.put(showTimeId, loaded);
+        fireShowTimeReloaded(showTimeId);
+        return loaded.estimatedFootprintBytes();
     }
 
     /**
@@ -50,12 +152,8 @@ public class SeatManager {
      * @return true if the seat is available, false otherwise.
      */
     public boolean isSeatAvailable(Integer showTimeId, Integer seatId) {
-        ConcurrentHashMap<Integer, AtomicBoolean> seats = showtimeSeatAvailability.get(showTimeId);
-        if (seats == null) {
-            return false; // Showtime not found
-        }
-        AtomicBoolean isBooked = seats.get(seatId);
-        return isBooked != null && !isBooked.get(); // If exists and is not booked
+        ShowTimeSeats seats = seats(showTimeId);
+        return seats != null && seats.isAvailable(seatId); // Showtime not found counts as unavailable
     }
 
     /**
@@ -67,16 +165,41 @@ public class SeatManager {
      * @return true if the seat was successfully booked, false if it was already booked or not found.
      */
     public boolean tryBookSeat(Integer showTimeId, Integer seatId) {
-        ConcurrentHashMap<Integer, AtomicBoolean> seats = showtimeSeatAvailability.get(showTimeId);
+        ShowTimeSeats seats = seats(showTimeId);
         if (seats == null) {
-            return false; // Showtime not found
+            return false; // unknown showtimes are not metered, so request input cannot create meters
+        }
+        if (!seats.tryBook(seatId)) {
+            claimCounters(showTimeId).conflict.increment();
+            return false;
+        }
+        claimCounters(showTimeId).claimed.increment();
+        fireSeatChanged(showTimeId, seatId);
+        return true;
+    }
+
+    /**
+     * Attempts to book several seats of a showtime with all-or-nothing semantics.
+     * Either every seat is booked by this call, or none of them is left booked by it.
+     *
+     * @param showTimeId The ID of the showtime.
+     * @param seatIds The IDs of the seats to book together.
+     * @return true if all seats were booked, false if any was already booked, not found or listed twice.
+     */
+    public boolean tryBookSeats(Integer showTimeId, Collection<Integer> seatIds) {
+        ShowTimeSeats seats = seats(showTimeId);
+        if (seats == null || seatIds.isEmpty()) {
+            return false;
+        }
+        if (!seats.tryBookAll(seatIds.stream().mapToInt(Integer::intValue).toArray())) {
+            claimCounters(showTimeId).conflict.increment();
+            return false;
         }
-        AtomicBoolean isBooked = seats.get(seatId);
-        if (isBooked == null) {
-            return false; // Seat not found for this showtime
+        claimCounters(showTimeId).claimed.increment();
+        for (Integer seatId : seatIds) {
+            fireSeatChanged(showTimeId, seatId);
         }
-        // Atomically sets the value to true if the current value is false.
-        return isBooked.compareAndSet(false, true);
+        return true;
     }
 
     /**
@@ -88,16 +211,166 @@ public class SeatManager {
      * @return true if the seat was successfully canceled (made available), false otherwise.
      */
     public boolean tryCancelSeat(Integer showTimeId, Integer seatId) {
-        ConcurrentHashMap<Integer, AtomicBoolean> seats = showtimeSeatAvailability.get(showTimeId);
+        ShowTimeSeats seats = showtimeSeats.get(showTimeId);
+        if (seats == null || !seats.tryCancel(seatId)) {
+            return false;
+        }
+        fireSeatChanged(showTimeId, seatId);
+        return true;
+    }
+
+    /**
+     * Looks up the Seat object registered for a showtime.
+     *
+     * @return The seat, or null if it is not known for this showtime.
+     */
+    public Seat getSeat(Integer showTimeId, Integer seatId) {
+        ShowTimeSeats seats = seats(showTimeId);
+        return seats != null ? seats.getSeat(seatId) : null;
+    }
+
+    /**
+     * Returns the seat map of a showtime grouped by row, with the current in-memory availability.
+     * The snapshot is shared between callers until the next state change of the showtime.
+     *
+     * @param showTimeId The ID of the showtime.
+     * @return The snapshot; empty if the showtime is not loaded.
+     */
+    public SeatMapSnapshot getSeatMap(Integer showTimeId) {
+        ShowTimeSeats seats = seats(showTimeId);
+        return seats != null ? seats.snapshot() : SeatMapSnapshot.EMPTY;
+    }
+
+    /**
+     * Number of seats of a showtime that can be booked right now; held seats count as taken.
+     *
+     * @param showTimeId The ID of the showtime.
+     * @return The available seats, or -1 if the showtime is unknown or not kept in memory (e.g. it is over).
+     */
+    public int countAvailableSeats(Integer showTimeId) {
+        ShowTimeSeats seats = seats(showTimeId);
+        return seats != null ? seats.countAvailable() : -1;
+    }
+
+    /**
+     * IDs of the seats currently booked in memory, in registration order.
+     *
+     * @param showTimeId The ID of the showtime.
+     * @return The booked seat IDs; empty if the showtime is not loaded.
+     */
+    public int[] getBookedSeatIds(Integer showTimeId) {
+        ShowTimeSeats seats = seats(showTimeId);
         if (seats == null) {
-            return false; // Showtime not found
+            return new int[0];
         }
-        AtomicBoolean isBooked = seats.get(seatId);
-        if (isBooked == null) {
-            return false; // Seat not found for this showtime
+        int size = seats.size();
+        int[] booked = new int[size];
+        int count = 0;
+        for (int ordinal = 0; ordinal < size; ordinal++) {
+            if (seats.isBooked(ordinal)) {
+                booked[count++] = seats.seatAt(ordinal).getSeatID();
+            }
+        }
+        return Arrays.copyOf(booked, count);
+    }
+
+    /**
+     * Drops a showtime from memory, together with its claim meters. Listeners are told so they can release
+     * their own per-showtime state. The showtime is loaded again on its next access if the loader allows it.
+     *
+     * @param showTimeId The ID of the showtime.
+     * @return true if the showtime was in memory.
+     */
+    public boolean evictShowTime(Integer showTimeId) {
+        if (showtimeSeats.remove(showTimeId) == null) {
+            return false;
+        }
+        ClaimCounters counters = claimCounters.remove(showTimeId);
+        if (counters != null) {
+            meterRegistry.remove(counters.claimed);
+            meterRegistry.remove(counters.conflict);
+        }
+        for (SeatTransitionListener listener : transitionListeners) {
+            listener.onShowTimeEvicted(showTimeId);
+        }
+        return true;
+    }
+
+    /**
+     * Stops all sales of a showtime, e.g. because the screening is canceled: every seat becomes unavailable in one
+     * step and stays so, as releases of seats claimed earlier (failed bookings, expiring holds) are ignored.
+     * Listeners get a single reload notice, so open seat pages show the showtime as full.
+     *
+     * @param showTimeId The ID of the showtime.
+     * @return true if the showtime is in memory (it is loaded first if needed).
+     */
+    public boolean closeSales(Integer showTimeId) {
+        ShowTimeSeats seats = seats(showTimeId);
+        if (seats == null) {
+            return false;
+        }
+        seats.close();
+        fireShowTimeReloaded(showTimeId);
+        return true;
+    }
+
+    /**
+     * Whether seats of a showtime can be sold right now: it is in memory and its sales are not closed.
+     * Unlike the other lookups this does not load the showtime, so a booking can tell that its showtime was
+     * canceled or evicted after its seats were claimed.
+     *
+     * @param showTimeId The ID of the showtime.
+     * @return false if the showtime is not in memory or its sales are closed.
+     */
+    public boolean isOnSale(Integer showTimeId) {
+        ShowTimeSeats seats = showtimeSeats.get(showTimeId);
+        return seats != null && !seats.isClosed();
+    }
+
+    /**
+     * Compares the in-memory booked seats of a showtime with the seats that should be booked, e.g. those with an
+     * active ticket in the database.
+     *
+     * @param showTimeId The ID of the showtime.
+     * @param expectedBookedSeatIds The seats expected to be booked; IDs unknown to this showtime are ignored.
+     * @return The differences; null if the showtime is not loaded or its sales are closed (every seat is taken on purpose).
+     */
+    public BookedSeatDiff diffBookedSeats(Integer showTimeId, int[] expectedBookedSeatIds) {
+        ShowTimeSeats seats = showtimeSeats.get(showTimeId);
+        return seats != null && !seats.isClosed() ? seats.diffBooked(expectedBookedSeatIds) : null;
+    }
+
+    /**
+     * IDs of the showtimes currently loaded, as a copy.
+     */
+    public Set<Integer> getShowTimeIds() {
+        return new HashSet<>(showtimeSeats.keySet());
+    }
+
+    /**
+     * Makes a showtime this node does not own mirror the owner's booked seats (partitioned mode).
+     * Every seat whose state changes is reported to the transition listeners, so open seat pages follow along;
+     * unlike bookings, these updates are not counted as claims.
+     *
+     * @param showTimeId The ID of the showtime.
+     * @param bookedSeatIds The seats booked on the owning node.
+     */
+    public void applyReplicaState(Integer showTimeId, int[] bookedSeatIds) {
+        ShowTimeSeats seats = seats(showTimeId);
+        if (seats == null) {
+            return;
+        }
+        int[] booked = bookedSeatIds.clone();
+        Arrays.sort(booked);
+        int size = seats.size();
+        for (int ordinal = 0; ordinal < size; ordinal++) {
+            int seatId = seats.seatAt(ordinal).getSeatID();
+            boolean shouldBeBooked = Arrays.binarySearch(booked, seatId) >= 0;
+            if (shouldBeBooked != seats.isBooked(ordinal)
+                    && (shouldBeBooked ? seats.tryBook(seatId) : seats.tryCancel(seatId))) {
+                fireSeatChanged(showTimeId, seatId);
+            }
         }
-        // Atomically sets the value to false if the current value is true.
-        return isBooked.compareAndSet(true, false);
     }
 
     /**
@@ -107,18 +380,116 @@ public class SeatManager {
      * @return A map of SeatID to its Seat object, with an added 'isBooked' status.
      */
     public Map<Integer, SeatStatus> getSeatsWithStatusForShowTime(Integer showTimeId) {
-        ConcurrentHashMap<Integer, Seat> seatsInShowtime = showtimeSeats.get(showTimeId);
-        ConcurrentHashMap<Integer, AtomicBoolean> availability = showtimeSeatAvailability.get(showTimeId);
+        ShowTimeSeats seats = seats(showTimeId);
+        if (seats == null) {
+            return new HashMap<>(); // No seats or showtime found
+        }
 
-        if (seatsInShowtime == null || availability == null) {
-            return new ConcurrentHashMap<>(); // No seats or showtime found
+        int size = seats.size();
+        Map<Integer, SeatStatus> result = new HashMap<>(size * 4 / 3 + 1);
+        for (int ordinal = 0; ordinal < size; ordinal++) {
+            Seat seat = seats.seatAt(ordinal);
+            result.put(seat.getSeatID(), new SeatStatus(seat, seats.isBooked(ordinal)));
         }
+        return result;
+    }
+
+    /**
+     * The engine of a showtime, loading it first if it is not in memory. Only one caller runs the load;
+     * the others wait for its result.
+     */
+    private ShowTimeSeats seats(Integer showTimeId) {
+        ShowTimeSeats seats = showtimeSeats.get(showTimeId);
+        ShowTimeLoader loader = showTimeLoader;
+        if (seats != null || loader == null || showTimeId == null) {
+            return seats;
+        }
+        CompletableFuture<ShowTimeSeats> mine = new CompletableFuture<>();
+        CompletableFuture<ShowTimeSeats> inFlight = loading.putIfAbsent(showTimeId, mine);
+        if (inFlight != null) {
+            try {
+                return inFlight.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+        try {
+            // Loaded (or registered) between the first look and taking over the load
+            seats = showtimeSeats.get(showTimeId);
+            if (seats == null) {
+                ShowTimeState state = loader.load(showTimeId);
+                if (state != null) {
+                    ShowTimeSeats built = new ShowTimeSeats(theaterLayout(state.theaterNumber()), state.bookedSeatIds());
+                    seats = showtimeSeats.putIfAbsent(showTimeId, built);
+                    if (seats == null) {
+                        seats = built;
+                        fireShowTimeReloaded(showTimeId);
+                    }
+                }
+            }
+            mine.complete(seats);
+            return seats;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(showTimeId, mine);
+        }
+    }
+
+    private ShowTimeSeats.SeatIndex theaterLayout(Integer theaterNumber) {
+        ShowTimeSeats.SeatIndex layout = theaterLayouts.get(theaterNumber);
+        if (layout == null) {
+            throw new IllegalStateException("No seat layout registered for theater " + theaterNumber);
+        }
+        return layout;
+    }
+
+    private ClaimCounters claimCounters(Integer showTimeId) {
+        ClaimCounters counters = claimCounters.get(showTimeId);
+        return counters != null ? counters : claimCounters.computeIfAbsent(showTimeId, id -> new ClaimCounters(meterRegistry, id));
+    }
+
+    private void fireSeatChanged(int showTimeId, int seatId) {
+        for (SeatTransitionListener listener : transitionListeners) {
+            listener.onSeatChanged(showTimeId, seatId);
+        }
+    }
+
+    private void fireShowTimeReloaded(int showTimeId) {
+        for (SeatTransitionListener listener : transitionListeners) {
+            listener.onShowTimeReloaded(showTimeId);
+        }
+    }
 
-        return seatsInShowtime.entrySet().stream()
-                .collect(Collectors.toMap(
-                        Map.Entry::getKey,
-                        entry -> new SeatStatus(entry.getValue(), availability.get(entry.getKey()).get())
-                ));
+    /**
+     * Source of showtimes that are accessed while not in memory.
+     */
+    @FunctionalInterface
+    public interface ShowTimeLoader {
+
+        /**
+         * Implementations register the theater's layout ({@link #setTheaterLayout}) before returning.
+         *
+         * @return the showtime's theater and booked seats, or null if it does not exist or should not be in memory.
+         */
+        ShowTimeState load(Integer showTimeId);
+    }
+
+    /**
+     * The theater whose layout a showtime uses and the IDs of its booked seats.
+     */
+    public record ShowTimeState(Integer theaterNumber, int[] bookedSeatIds) {
+    }
+
+    /**
+     * Seats booked in memory but not expected to be, and seats expected to be booked but free in memory.
+     */
+    public record BookedSeatDiff(int[] bookedOnlyInMemory, int[] bookedOnlyExpected) {
+
+        public boolean isEmpty() {
+            return bookedOnlyInMemory.length == 0 && bookedOnlyExpected.length == 0;
+        }
     }
 
     /**
@@ -141,4 +512,22 @@ public class SeatManager {
             return isBooked;
         }
     }
-}
\ No newline at end of file
+
+    private static final class ClaimCounters {
+        private final Counter claimed;
+        private final Counter conflict;
+
+        private ClaimCounters(MeterRegistry registry, Integer showTimeId) {
+            this.claimed = claimCounter(registry, showTimeId, "claimed");
+            this.conflict = claimCounter(registry, showTimeId, "conflict");
+        }
+
+        private static Counter claimCounter(MeterRegistry registry, Integer showTimeId, String outcome) {
+            return Counter.builder("seat.claims")
+                    .description("In-memory seat claim attempts (single seats and seat groups)")
+                    .tag("showtime", String.valueOf(showTimeId))
+                    .tag("outcome", outcome)
+                    .register(registry);
+        }
+    }
+}
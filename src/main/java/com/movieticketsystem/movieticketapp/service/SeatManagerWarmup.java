@@ -0,0 +1,243 @@
+package com.movieticketsystem.movieticketapp.service;
+
+import com.movieticketsystem.movieticketapp.model.Seat;
+import com.movieticketsystem.movieticketapp.repository.BookingDeadLetterRepository;
+import com.movieticketsystem.movieticketapp.repository.SeatRepository;
+import com.movieticketsystem.movieticketapp.repository.ShowTimeRepository;
+import com.movieticketsystem.movieticketapp.repository.TicketRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.MemoryType;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Keeps SeatManager filled with the current schedule only.
+ *
+ * On start-up, showtimes starting within {@code app.seat-lifecycle.preload-horizon} are loaded eagerly, spread
+ * over a small worker pool. Any other showtime is loaded when it is first accessed (SeatManager's loader), unless
+ * it is over or canceled. A showtime counts as over {@code app.seat-lifecycle.evict-after} past its start time; such showtimes
+ * are evicted on a schedule, so the heap follows the active schedule instead of the whole Seats table.
+ * A theater's seat layout is read once and shared by all its showtimes; per showtime only the seats with an
+ * active (non-canceled) ticket, or a parked write-behind booking, are streamed through projection queries.
+ */
+@Component
+public class SeatManagerWarmup {
+
+    private static final Logger log = LoggerFactory.getLogger(SeatManagerWarmup.class);
+
+    // IDs per start-time lookup; SQL Server allows 2100 parameters per statement
+    private static final int START_TIME_QUERY_CHUNK = 1000;
+
+    private final SeatManager seatManager;
+    private final ShowTimeRepository showTimeRepository;
+    private final SeatRepository seatRepository;
+    private final TicketRepository ticketRepository;
+    private final BookingDeadLetterRepository deadLetterRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final int threads;
+    private final Duration preloadHorizon;
+    private final Duration evictAfter;
+
+    // ShowTimeID -> start time of loaded showtimes, to find the ones that are over without a query per showtime
+    private final ConcurrentHashMap<Integer, LocalDateTime> startTimes = new ConcurrentHashMap<>();
+
+    @Autowired
+    public SeatManagerWarmup(SeatManager seatManager, ShowTimeRepository showTimeRepository,
+                             SeatRepository seatRepository, TicketRepository ticketRepository,
+                             BookingDeadLetterRepository deadLetterRepository,
+                             PlatformTransactionManager transactionManager,
+                             @Value("${app.seat-warmup.threads:0}") int threads,
+                             @Value("${app.seat-lifecycle.preload-horizon:2d}") Duration preloadHorizon,
+                             @Value("${app.seat-lifecycle.evict-after:30m}") Duration evictAfter) {
+        this.seatManager = seatManager;
+        this.showTimeRepository = showTimeRepository;
+        this.seatRepository = seatRepository;
+        this.ticketRepository = ticketRepository;
+        this.deadLetterRepository = deadLetterRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        // 0 means one worker per available core
+        this.threads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.preloadHorizon = preloadHorizon;
+        this.evictAfter = evictAfter;
+        seatManager.setShowTimeLoader(this::loadOnDemand);
+    }
+
+    /**
+     * Loads the showtimes that are not over and start within the preload horizon, marking seats with active
+     * tickets as booked. Blocks until they are all loaded.
+     */
+    public void warmUp() {
+        LocalDateTime now = LocalDateTime.now();
+        List<ShowTimeRepository.ShowTimeSlot> slots = showTimeRepository.findSlotsStartingBetween(now.minus(evictAfter),
+                now.plus(preloadHorizon));
+        if (slots.isEmpty()) {
+            return;
+        }
+
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        long startNanos = System.nanoTime();
+        long heapBefore = memory.getHeapMemoryUsage().getUsed();
+
+        // Few theaters and one query each, so their layouts are read up front on this thread
+        Set<Integer> theaters = new TreeSet<>();
+        slots.forEach(slot -> theaters.add(slot.getTheaterNumber()));
+        theaters.forEach(this::loadTheaterLayout);
+
+        AtomicInteger workerCount = new AtomicInteger();
+        ExecutorService workers = Executors.newFixedThreadPool(Math.min(threads, slots.size()), r -> {
+            Thread thread = new Thread(r, "seat-warmup-" + workerCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<?>> pending = new ArrayList<>(slots.size());
+            for (ShowTimeRepository.ShowTimeSlot slot : slots) {
+                startTimes.put(slot.getShowTimeID(), slot.getShowTimeDateTime());
+                pending.add(workers.submit(() -> loadShowTime(slot.getShowTimeID(), slot.getTheaterNumber())));
+            }
+            for (Future<?> future : pending) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("SeatManager warm-up was interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("SeatManager warm-up failed", e.getCause());
+        } finally {
+            workers.shutdownNow();
+        }
+
+        log.info("SeatManager warm-up: {} showtimes in {} theaters in {} ms on {} threads, heap {} KB -> {} KB "
+                        + "(peak pool usage {} KB)", slots.size(), theaters.size(), (System.nanoTime() - startNanos) / 1_000_000,
+                Math.min(threads, slots.size()),
+                heapBefore / 1024, memory.getHeapMemoryUsage().getUsed() / 1024, peakHeapBytes() / 1024);
+    }
+
+    /**
+     * Drops showtimes that are over from SeatManager. Start times of showtimes loaded without one
+     * (warm-up, newly created showtimes) are looked up in chunks.
+     */
+    @Scheduled(fixedDelayString = "${app.seat-lifecycle.evict-interval-ms:60000}")
+    public void evictPastShowTimes() {
+        Set<Integer> loaded = seatManager.getShowTimeIds();
+        startTimes.keySet().retainAll(loaded);
+        List<Integer> unknown = loaded.stream().filter(id -> !startTimes.containsKey(id)).toList();
+        for (int from = 0; from < unknown.size(); from += START_TIME_QUERY_CHUNK) {
+            List<Integer> chunk = unknown.subList(from, Math.min(from + START_TIME_QUERY_CHUNK, unknown.size()));
+            showTimeRepository.findSlots(chunk)
+                    .forEach(slot -> startTimes.put(slot.getShowTimeID(), slot.getShowTimeDateTime()));
+        }
+
+        int evicted = 0;
+        for (Map.Entry<Integer, LocalDateTime> entry : startTimes.entrySet()) {
+            if (isOver(entry.getValue()) && seatManager.evictShowTime(entry.getKey())) {
+                startTimes.remove(entry.getKey());
+                evicted++;
+            }
+        }
+        if (evicted > 0) {
+            log.info("Evicted {} past showtimes from SeatManager; {} remain loaded.", evicted, loaded.size() - evicted);
+        }
+    }
+
+    /**
+     * SeatManager's loader: reads a showtime on its first access, unless it does not exist, is canceled or is over.
+     */
+    private SeatManager.ShowTimeState loadOnDemand(Integer showTimeId) {
+        Optional<ShowTimeRepository.ShowTimeSlot> slot = showTimeRepository.findOpenSlot(showTimeId);
+        if (slot.isEmpty() || isOver(slot.get().getShowTimeDateTime())) {
+            return null;
+        }
+        Integer theaterNumber = slot.get().getTheaterNumber();
+        // Two showtimes of a new theater may both read its layout; the later registration wins, which is harmless
+        if (!seatManager.hasTheaterLayout(theaterNumber)) {
+            loadTheaterLayout(theaterNumber);
+        }
+        startTimes.put(showTimeId, slot.get().getShowTimeDateTime());
+        int[] bookedSeatIds = readBookedSeatIds(showTimeId);
+        log.debug("Loaded showtime {} (theater {}) on first access: {} booked", showTimeId, theaterNumber,
+                bookedSeatIds.length);
+        return new SeatManager.ShowTimeState(theaterNumber, bookedSeatIds);
+    }
+
+    private boolean isOver(LocalDateTime start) {
+        return start.plus(evictAfter).isBefore(LocalDateTime.now());
+    }
+
+    private void loadShowTime(Integer showTimeId, Integer theaterNumber) {
+        long startNanos = System.nanoTime();
+        long allocatedBefore = threadAllocatedBytes();
+
+        int[] bookedSeatIds = readBookedSeatIds(showTimeId);
+        long retainedBytes = seatManager.loadShowTime(showTimeId, theaterNumber, bookedSeatIds);
+
+        log.debug("Warmed showtime {}: theater {}, {} booked, {} ms, {} KB allocated, ~{} bytes retained",
+                showTimeId, theaterNumber, bookedSeatIds.length, (System.nanoTime() - startNanos) / 1_000_000,
+                Math.max(0, threadAllocatedBytes() - allocatedBefore) / 1024, retainedBytes);
+    }
+
+    private void loadTheaterLayout(Integer theaterNumber) {
+        List<Seat> seats = new ArrayList<>();
+        readOnlyTransaction.executeWithoutResult(status -> {
+            try (Stream<SeatRepository.SeatView> views = seatRepository.streamSeatViewsByTheater(theaterNumber)) {
+                views.forEach(view -> {
+                    Seat seat = new Seat(theaterNumber, view.getSeatRow(), view.getSeatNumber());
+                    seat.setSeatID(view.getSeatID());
+                    seats.add(seat);
+                });
+            }
+        });
+        seatManager.setTheaterLayout(theaterNumber, seats);
+        log.debug("Loaded seat layout of theater {}: {} seats", theaterNumber, seats.size());
+    }
+
+    private int[] readBookedSeatIds(Integer showTimeId) {
+        return readOnlyTransaction.execute(status -> {
+            // Seats of parked write-behind bookings stay booked until an operator repairs them
+            try (Stream<Integer> booked = ticketRepository.streamActiveSeatIdsByShowTime(showTimeId);
+                 Stream<Integer> parked = deadLetterRepository.streamSeatIdsByShowTime(showTimeId)) {
+                return Stream.concat(booked, parked).mapToInt(Integer::intValue).distinct().toArray();
+            }
+        });
+    }
+
+    // Bytes allocated by the current thread so far, or 0 when the JVM does not expose it
+    private static long threadAllocatedBytes() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threadBean
+                && threadBean.isThreadAllocatedMemorySupported() && threadBean.isThreadAllocatedMemoryEnabled()) {
+            return threadBean.getCurrentThreadAllocatedBytes();
+        }
+        return 0;
+    }
+
+    private static long peakHeapBytes() {
+        return ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP)
+                .mapToLong(pool -> pool.getPeakUsage().getUsed())
+                .sum();
+    }
+}
@@ -0,0 +1,207 @@
+package com.movieticketsystem.movieticketapp.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pushes live seat-map changes to browsers over Server-Sent Events, one stream per showtime.
+ *
+ * SeatManager reports every transition; for showtimes with subscribers the seat ID is only marked dirty.
+ * A scheduled flush turns the dirty seats of each showtime into one "seats" event listing the seats that
+ * are now booked and the ones that are now free, reading the state at flush time so that coalesced and
+ * out-of-order notifications still end in the right state. The event is serialized once and queued for
+ * every subscriber; each subscriber has a bounded queue, and one that falls behind is told to resync
+ * (reload the page) instead of buffering without limit.
+ * Sends block on slow clients, so in virtual-thread mode each drain runs on its own virtual thread
+ * instead of occupying one of a few platform sender threads.
+ */
+@Component
+public class SeatMapEventBroadcaster implements SeatTransitionListener {
+
+    private final SeatManager seatManager;
+    private final long timeoutMillis;
+    private final int subscriberBufferSize;
+    private final Executor senders;
+
+    // ShowTimeID -> open streams
+    private final ConcurrentHashMap<Integer, Set<Subscriber>> subscribers = new ConcurrentHashMap<>();
+    // ShowTimeID -> seats changed since the last flush
+    private final ConcurrentHashMap<Integer, Set<Integer>> dirtySeats = new ConcurrentHashMap<>();
+
+    @Autowired
+    public SeatMapEventBroadcaster(SeatManager seatManager,
+                                   @Value("${app.seat-events.timeout:30m}") Duration timeout,
+                                   @Value("${app.seat-events.subscriber-buffer:64}") int subscriberBufferSize,
+                                   @Value("${app.seat-events.sender-threads:4}") int senderThreads,
+                                   Environment environment) {
+        this.seatManager = seatManager;
+        this.timeoutMillis = timeout.toMillis();
+        this.subscriberBufferSize = subscriberBufferSize;
+        if (Threading.VIRTUAL.isActive(environment)) {
+            SimpleAsyncTaskExecutor virtualSenders = new SimpleAsyncTaskExecutor("seat-events-");
+            virtualSenders.setVirtualThreads(true);
+            this.senders = virtualSenders;
+        } else {
+            AtomicInteger senderCount = new AtomicInteger();
+            this.senders = Executors.newFixedThreadPool(senderThreads, r -> {
+                Thread thread = new Thread(r, "seat-events-" + senderCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        seatManager.addTransitionListener(this);
+    }
+
+    /**
+     * Opens a stream of seat changes for a showtime. The stream ends on timeout, client disconnect or shutdown.
+     */
+    public SseEmitter subscribe(Integer showTimeId) {
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        Subscriber subscriber = new Subscriber(showTimeId, emitter, subscriberBufferSize);
+        // compute() so the add cannot race with the last unsubscribe removing the set
+        subscribers.compute(showTimeId, (k, watching) -> {
+            Set<Subscriber> result = watching != null ? watching : ConcurrentHashMap.newKeySet();
+            result.add(subscriber);
+            return result;
+        });
+        emitter.onCompletion(() -> unsubscribe(subscriber));
+        emitter.onTimeout(() -> unsubscribe(subscriber));
+        emitter.onError(e -> unsubscribe(subscriber));
+        return emitter;
+    }
+
+    @Override
+    public void onSeatChanged(int showTimeId, int seatId) {
+        if (!subscribers.containsKey(showTimeId)) {
+            return; // nobody is watching; keep the booking path free of extra work
+        }
+        dirtySeats.computeIfAbsent(showTimeId, k -> ConcurrentHashMap.newKeySet()).add(seatId);
+    }
+
+    @Override
+    public void onShowTimeEvicted(int showTimeId) {
+        dirtySeats.remove(showTimeId);
+    }
+
+    /**
+     * Sends one coalesced event per showtime with changes since the previous flush.
+     */
+    @Scheduled(fixedDelayString = "${app.seat-events.flush-interval-ms:50}")
+    public void flush() {
+        for (Iterator<Integer> showTimes = dirtySeats.keySet().iterator(); showTimes.hasNext(); ) {
+            Integer showTimeId = showTimes.next();
+            Set<Subscriber> watching = subscribers.get(showTimeId);
+            if (watching == null) {
+                showTimes.remove(); // last subscriber left; drop its pending changes too
+                continue;
+            }
+            Set<Integer> dirty = dirtySeats.get(showTimeId);
+            if (dirty == null || dirty.isEmpty()) {
+                continue;
+            }
+
+            List<Integer> booked = new ArrayList<>();
+            List<Integer> free = new ArrayList<>();
+            for (Iterator<Integer> seats = dirty.iterator(); seats.hasNext(); ) {
+                Integer seatId = seats.next();
+                seats.remove(); // a change racing with this flush re-adds the seat for the next one
+                if (seatManager.isSeatAvailable(showTimeId, seatId)) {
+                    free.add(seatId);
+                } else {
+                    booked.add(seatId);
+                }
+            }
+
+            String payload = "{\"booked\":" + booked + ",\"free\":" + free + "}";
+            for (Subscriber subscriber : watching) {
+                subscriber.enqueue(payload);
+                if (subscriber.sending.compareAndSet(false, true)) {
+                    senders.execute(() -> drain(subscriber));
+                }
+            }
+        }
+    }
+
+    private void drain(Subscriber subscriber) {
+        try {
+            while (true) {
+                if (subscriber.overflowed.getAndSet(false)) {
+                    subscriber.queue.clear();
+                    subscriber.emitter.send(SseEmitter.event().name("resync").data("{}"));
+                }
+                String payload = subscriber.queue.poll();
+                if (payload == null) {
+                    subscriber.sending.set(false);
+                    // Re-check after releasing the flag so a payload queued in between is not stranded
+                    if ((subscriber.queue.isEmpty() && !subscriber.overflowed.get())
+                            || !subscriber.sending.compareAndSet(false, true)) {
+                        return;
+                    }
+                    continue;
+                }
+                subscriber.emitter.send(SseEmitter.event().name("seats").data(payload));
+            }
+        } catch (IOException | IllegalStateException e) {
+            // Client went away or the emitter is already completed; the container finishes the request
+            unsubscribe(subscriber);
+        }
+    }
+
+    private void unsubscribe(Subscriber subscriber) {
+        subscribers.computeIfPresent(subscriber.showTimeId, (k, watching) -> {
+            watching.remove(subscriber);
+            return watching.isEmpty() ? null : watching;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (senders instanceof ExecutorService pool) {
+            pool.shutdownNow();
+        }
+        subscribers.values().forEach(watching -> watching.forEach(subscriber -> subscriber.emitter.complete()));
+        subscribers.clear();
+    }
+
+    private static final class Subscriber {
+        private final int showTimeId;
+        private final SseEmitter emitter;
+        private final ArrayBlockingQueue<String> queue;
+        private final AtomicBoolean sending = new AtomicBoolean();
+        private final AtomicBoolean overflowed = new AtomicBoolean();
+
+        private Subscriber(int showTimeId, SseEmitter emitter, int bufferSize) {
+            this.showTimeId = showTimeId;
+            this.emitter = emitter;
+            this.queue = new ArrayBlockingQueue<>(bufferSize);
+        }
+
+        void enqueue(String payload) {
+            if (!queue.offer(payload)) {
+                // Too far behind to catch up event by event; the client reloads the whole map instead
+                overflowed.set(true);
+            }
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.movieticketsystem.movieticketapp.service;
+
+import java.util.List;
+
+/**
+ * Immutable, row-ordered view of a showtime's seats and their availability at a given version.
+ * The version only counts changes since the showtime was loaded into memory, and restarts when it is reloaded,
+ * evicted or the process restarts; two snapshots with the same epoch and version show the same seat map,
+ * so the pair can back an HTTP ETag.
+ */
+public final class SeatMapSnapshot {
+
+    static final SeatMapSnapshot EMPTY = new SeatMapSnapshot(0, -1, List.of());
+
+    private final long epoch;
+    private final long version;
+    private final List<Row> rows;
+
+    SeatMapSnapshot(long epoch, long version, List<Row> rows) {
+        this.epoch = epoch;
+        this.version = version;
+        this.rows = rows;
+    }
+
+    /**
+     * Random value chosen when the showtime was loaded into memory, telling apart versions of different loads.
+     */
+    public long getEpoch() {
+        return epoch;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public List<Row> getRows() {
+        return rows;
+    }
+
+    public boolean isEmpty() {
+        return rows.isEmpty();
+    }
+
+    /**
+     * One row of seats, ordered by seat number.
+     */
+    public static final class Row {
+        private final String label;
+        private final List<SeatManager.SeatStatus> seats;
+
+        Row(String label, List<SeatManager.SeatStatus> seats) {
+            this.label = label;
+            this.seats = seats;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+
+        public List<SeatManager.SeatStatus> getSeats() {
+            return seats;
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package com.movieticketsystem.movieticketapp.service;
+
+import com.movieticketsystem.movieticketapp.repository.BookingDeadLetterRepository;
+import com.movieticketsystem.movieticketapp.repository.TicketRepository;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Background check that SeatManager agrees with the Tickets table, which can drift after a failed release,
+ * a crash between commit and seat update, or a manual database fix.
+ *
+ * Each run compares a few showtimes in turn: the seats with an active ticket or a parked write-behind booking
+ * ({@code BookingDeadLetters}) are streamed from the database into a bitmap and diffed with the live SeatManager bitmap. A seat booked only in memory (nobody can buy it)
+ * or only in the database (it can be sold twice) is reported once the same difference shows up in two
+ * consecutive checks, so in-flight bookings are never mistaken for drift; held seats and, in write-behind mode,
+ * bookings not drained yet are expected to be memory-only and are skipped. With {@code app.reconcile.repair=true}
+ * reported seats are set to the database state.
+ *
+ * The reconciler keeps out of the way of bookings: a run stops after {@code app.reconcile.max-run-time},
+ * showtimes changed within {@code app.reconcile.quiet-period} are left for later, and nothing is checked while
+ * more than {@code app.reconcile.max-pool-usage} of the JDBC pool is in use.
+ * Reported differences are counted as {@code seat.reconcile.mismatches} (kind memory_only / database_only).
+ */
+@Component
+public class SeatReconciler implements SeatTransitionListener {
+
+    private static final Logger log = LoggerFactory.getLogger(SeatReconciler.class);
+
+    private final SeatManager seatManager;
+    private final SeatHoldManager seatHoldManager;
+    private final TicketRepository ticketRepository;
+    private final BookingDeadLetterRepository deadLetterRepository;
+    private final ClusterMembership membership;
+    private final ObjectProvider<BookingJournal> journal;
+    private final TransactionTemplate readOnlyTransaction;
+    private final HikariDataSource hikari;
+    private final boolean enabled;
+    private final boolean repair;
+    private final long maxRunNanos;
+    private final long quietPeriodNanos;
+    private final double maxPoolUsage;
+    private final Counter memoryOnly;
+    private final Counter databaseOnly;
+
+    // ShowTimeID -> time of the last seat change, to leave busy showtimes alone
+    private final ConcurrentHashMap<Integer, Long> lastChange = new ConcurrentHashMap<>();
+    // ShowTimeID -> differences seen by the previous check, awaiting confirmation
+    // (seat ID; negated if booked only in the database, which works because IDs are positive)
+    private final Map<Integer, Set<Integer>> suspected = new HashMap<>();
+    private int lastChecked = Integer.MIN_VALUE;
+
+    @Autowired
+    public SeatReconciler(SeatManager seatManager, SeatHoldManager seatHoldManager, TicketRepository ticketRepository,
+                          BookingDeadLetterRepository deadLetterRepository, ClusterMembership membership, ObjectProvider<BookingJournal> journal,
+                          PlatformTransactionManager transactionManager, DataSource dataSource, MeterRegistry meterRegistry,
+                          @Value("${app.reconcile.enabled:true}") boolean enabled,
+                          @Value("${app.reconcile.repair:false}") boolean repair,
+                          @Value("${app.reconcile.max-run-time:100ms}") Duration maxRunTime,
+                          @Value("${app.reconcile.quiet-period:10s}") Duration quietPeriod,
+                          @Value("${app.reconcile.max-pool-usage:0.5}") double maxPoolUsage) {
+        this.seatManager = seatManager;
+        this.seatHoldManager = seatHoldManager;
+        this.ticketRepository = ticketRepository;
+        this.deadLetterRepository = deadLetterRepository;
+        this.membership = membership;
+        this.journal = journal;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.hikari = unwrapHikari(dataSource);
+        this.enabled = enabled;
+        this.repair = repair;
+        this.maxRunNanos = maxRunTime.toNanos();
+        this.quietPeriodNanos = quietPeriod.toNanos();
+        this.maxPoolUsage = maxPoolUsage;
+        this.memoryOnly = mismatchCounter(meterRegistry, "memory_only");
+        this.databaseOnly = mismatchCounter(meterRegistry, "database_only");
+        seatManager.addTransitionListener(this);
+    }
+
+    @Override
+    public void onSeatChanged(int showTimeId, int seatId) {
+        lastChange.put(showTimeId, System.nanoTime());
+    }
+
+    @Override
+    public void onShowTimeReloaded(int showTimeId) {
+        lastChange.put(showTimeId, System.nanoTime());
+    }
+
+    @Override
+    public void onShowTimeEvicted(int showTimeId) {
+        lastChange.remove(showTimeId); // suspected is trimmed by the next run, on the scheduler thread
+    }
+
+    /**
+     * Checks the next showtimes in ID order, wrapping around, until the run's time budget is spent.
+     */
+    @Scheduled(fixedDelayString = "${app.reconcile.interval-ms:5000}")
+    public void reconcile() {
+        if (!enabled) {
+            return;
+        }
+        TreeSet<Integer> showTimeIds = new TreeSet<>(seatManager.getShowTimeIds());
+        suspected.keySet().retainAll(showTimeIds);
+        long deadline = System.nanoTime() + maxRunNanos;
+        for (int checked = 0; checked < showTimeIds.size() && System.nanoTime() - deadline < 0; checked++) {
+            if (poolBusy()) {
+                log.debug("Reconciliation paused: JDBC pool is busy.");
+                return;
+            }
+            Integer showTimeId = showTimeIds.higher(lastChecked);
+            if (showTimeId == null) {
+                showTimeId = showTimeIds.first();
+            }
+            lastChecked = showTimeId;
+            if (membership.isLocal(showTimeId) && isQuiet(showTimeId)) {
+                check(showTimeId);
+            }
+        }
+    }
+
+    private void check(Integer showTimeId) {
+        Long changeBefore = lastChange.get(showTimeId);
+        int[] persisted = readOnlyTransaction.execute(status -> {
+            // A parked write-behind booking keeps its seats booked, so they are expected in memory too
+            try (Stream<Integer> booked = ticketRepository.streamActiveSeatIdsByShowTime(showTimeId);
+                 Stream<Integer> parked = deadLetterRepository.streamSeatIdsByShowTime(showTimeId)) {
+                return Stream.concat(booked, parked).mapToInt(Integer::intValue).distinct().toArray();
+            }
+        });
+        SeatManager.BookedSeatDiff diff = seatManager.diffBookedSeats(showTimeId, persisted);
+        if (diff == null || !Objects.equals(changeBefore, lastChange.get(showTimeId))) {
+            return; // changed while it was read; the next round checks it again
+        }
+
+        Set<Integer> found = new HashSet<>();
+        BookingJournal pending = journal.getIfAvailable();
+        if (pending == null || pending.isEmpty()) {
+            for (int seatId : diff.bookedOnlyInMemory()) {
+                if (!seatHoldManager.isHeld(showTimeId, seatId)) {
+                    found.add(seatId);
+                }
+            }
+        }
+        for (int seatId : diff.bookedOnlyExpected()) {
+            found.add(-seatId);
+        }
+
+        Set<Integer> previous = found.isEmpty() ? suspected.remove(showTimeId) : suspected.put(showTimeId, found);
+        if (previous == null) {
+            return;
+        }
+        Set<Integer> confirmed = new HashSet<>(found);
+        confirmed.retainAll(previous);
+        if (!confirmed.isEmpty()) {
+            report(showTimeId, confirmed);
+            // Reported; if it persists it is reported again after two more checks
+            found.removeAll(confirmed);
+            if (found.isEmpty()) {
+                suspected.remove(showTimeId);
+            }
+        }
+    }
+
+    private void report(Integer showTimeId, Set<Integer> confirmed) {
+        int[] onlyInMemory = confirmed.stream().filter(id -> id > 0).mapToInt(Integer::intValue).sorted().toArray();
+        int[] onlyInDatabase = confirmed.stream().filter(id -> id < 0).mapToInt(id -> -id).sorted().toArray();
+        memoryOnly.increment(onlyInMemory.length);
+        databaseOnly.increment(onlyInDatabase.length);
+        log.atWarn()
+                .addKeyValue("showTimeId", showTimeId)
+                .log("SeatManager disagrees with Tickets for showtime {}: booked only in memory {}, "
+                                + "active tickets on free seats {}{}", showTimeId, Arrays.toString(onlyInMemory),
+                        Arrays.toString(onlyInDatabase), repair ? "; repairing" : "");
+        if (repair) {
+            for (int seatId : onlyInMemory) {
+                seatManager.tryCancelSeat(showTimeId, seatId);
+            }
+            for (int seatId : onlyInDatabase) {
+                seatManager.tryBookSeat(showTimeId, seatId);
+            }
+        }
+    }
+
+    private boolean isQuiet(Integer showTimeId) {
+        Long changed = lastChange.get(showTimeId);
+        return changed == null || System.nanoTime() - changed >= quietPeriodNanos;
+    }
+
+    private boolean poolBusy() {
+        HikariPoolMXBean pool = hikari != null ? hikari.getHikariPoolMXBean() : null;
+        return pool != null && pool.getActiveConnections() > maxPoolUsage * hikari.getMaximumPoolSize();
+    }
+
+    private static HikariDataSource unwrapHikari(DataSource dataSource) {
+        try {
+            return dataSource.isWrapperFor(HikariDataSource.class) ? dataSource.unwrap(HikariDataSource.class) : null;
+        } catch (SQLException e) {
+            return null; // not a Hikari pool; run without the load check
+        }
+    }
+
+    private static Counter mismatchCounter(MeterRegistry registry, String kind) {
+        return Counter.builder("seat.reconcile.mismatches")
+                .description("Seats whose SeatManager state disagreed with the Tickets table in two consecutive checks")
+                .tag("kind", kind)
+                .register(registry);
+    }
+}
@@ -0,0 +1,31 @@
+package com.movieticketsystem.movieticketapp.service;
+
+/**
+ * Callback for seats that changed state in SeatManager.
+ * Invoked on the booking thread right after a successful transition, so implementations must be cheap
+ * and must not call back into a booking operation.
+ */
+public interface SeatTransitionListener {
+
+    /**
+     * @param showTimeId The showtime whose seat changed.
+     * @param seatId The seat that was booked or released.
+     */
+    void onSeatChanged(int showTimeId, int seatId);
+
+    /**
+     * Seats of the showtime were (re)registered or reloaded in bulk, so per-seat changes were not reported.
+     *
+     * @param showTimeId The showtime whose seats were reloaded.
+     */
+    default void onShowTimeReloaded(int showTimeId) {
+    }
+
+    /**
+     * The showtime was dropped from memory (it is over); per-showtime state kept for it can be released.
+     *
+     * @param showTimeId The evicted showtime.
+     */
+    default void onShowTimeEvicted(int showTimeId) {
+    }
+}
@@ -0,0 +1,510 @@
+package com.movieticketsystem.movieticketapp.service;
+
+import com.movieticketsystem.movieticketapp.model.Seat;
+import com.movieticketsystem.movieticketapp.model.ShowTime;
+import com.movieticketsystem.movieticketapp.model.Ticket;
+import com.movieticketsystem.movieticketapp.repository.ShowTimeRepository;
+import com.movieticketsystem.movieticketapp.repository.TicketRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Opt-in single-writer booking engine ({@code app.booking.engine=actor}).
+ *
+ * Every showtime gets a mailbox that is drained by at most one thread at a time, so its bookings, holds and
+ * cancellations are decided one after another in arrival order instead of by request threads racing on
+ * SeatManager. A drain takes up to {@code app.booking.actor.batch-size} commands, applies them to SeatManager
+ * and then writes all of their tickets, cancellations and one AvailableSeats update per direction in a single
+ * transaction; commands that arrive meanwhile form the next batch. Callers get a CompletableFuture that completes
+ * once the transaction has committed. If the batch transaction fails, its commands are retried one by one, so a
+ * single bad booking only fails itself.
+ *
+ * SeatManager stays the shared, thread-safe seat state: readers, the hold sweeper and the write-behind writer
+ * still use it, but on the booking path its updates are no longer contended.
+ * Drains are counted as {@code booking.actor.drain} (timer) and {@code booking.actor.batch} (commands per drain).
+ */
+@Component
+@ConditionalOnProperty(name = "app.booking.engine", havingValue = "actor")
+public class ShowTimeActors {
+
+    private static final Logger log = LoggerFactory.getLogger(ShowTimeActors.class);
+
+    private final SeatManager seatManager;
+    private final SeatHoldManager seatHoldManager;
+    private final BestAvailableSeatFinder seatFinder;
+    private final SeatClaimTransactions claimTransactions;
+    private final TicketRepository ticketRepository;
+    private final ShowTimeRepository showTimeRepository;
+    private final int batchSize;
+    private final Executor drainers;
+    private final Timer drainTimer;
+    private final DistributionSummary batchSizes;
+
+    // ShowTimeID -> mailbox of that showtime's actor
+    private final ConcurrentHashMap<Integer, Mailbox> mailboxes = new ConcurrentHashMap<>();
+
+    @Autowired
+    public ShowTimeActors(SeatManager seatManager, SeatHoldManager seatHoldManager, BestAvailableSeatFinder seatFinder,
+                          SeatClaimTransactions claimTransactions, TicketRepository ticketRepository,
+                          ShowTimeRepository showTimeRepository,
+                          @Value("${app.booking.actor.batch-size:200}") int batchSize,
+                          @Value("${app.booking.actor.threads:0}") int threads,
+                          Environment environment, MeterRegistry meterRegistry) {
+        this.seatManager = seatManager;
+        this.seatHoldManager = seatHoldManager;
+        this.seatFinder = seatFinder;
+        this.claimTransactions = claimTransactions;
+        this.ticketRepository = ticketRepository;
+        this.showTimeRepository = showTimeRepository;
+        this.batchSize = Math.max(1, batchSize);
+        if (Threading.VIRTUAL.isActive(environment)) {
+            SimpleAsyncTaskExecutor virtualDrainers = new SimpleAsyncTaskExecutor("showtime-actor-");
+            virtualDrainers.setVirtualThreads(true);
+            this.drainers = virtualDrainers;
+        } else {
+            // A drain holds a JDBC connection while it persists, so more threads than CPUs only helps with many hot showtimes
+            AtomicInteger drainerCount = new AtomicInteger();
+            this.drainers = Executors.newFixedThreadPool(threads > 0 ? threads : Runtime.getRuntime().availableProcessors(), r -> {
+                Thread thread = new Thread(r, "showtime-actor-" + drainerCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        this.drainTimer = Timer.builder("booking.actor.drain")
+                .description("Time to apply and persist one batch of a showtime's booking commands")
+                .register(meterRegistry);
+        this.batchSizes = DistributionSummary.builder("booking.actor.batch")
+                .description("Booking commands handled per showtime drain")
+                .register(meterRegistry);
+        seatManager.addTransitionListener(new SeatTransitionListener() {
+            @Override
+            public void onSeatChanged(int showTimeId, int seatId) {
+            }
+
+            @Override
+            public void onShowTimeEvicted(int showTimeId) {
+                // An idle actor goes with its showtime; a busy one removes itself once its last drain leaves it idle.
+                // Marked before the idle check, so a drain finishing meanwhile sees the mark. Closed and removed in
+                // one step, so a submitter holding the old mailbox moves to a new one
+                mailboxes.computeIfPresent(showTimeId, (id, mailbox) -> {
+                    mailbox.evicted = true;
+                    return mailbox.closeIfIdle() ? null : mailbox;
+                });
+            }
+        });
+    }
+
+    /**
+     * Books the given seats, all or nothing.
+     *
+     * @return the created tickets, or an empty list if any seat was taken or unknown.
+     */
+    public CompletableFuture<List<Ticket>> book(Integer showTimeId, List<Integer> seatIds, String customerName,
+                                                String idempotencyKey) {
+        return submit(showTimeId, new Book(seatIds, null, 0, customerName, idempotencyKey));
+    }
+
+    /**
+     * Books seats for a session, all or nothing: the seats it holds are turned into tickets and the others claimed.
+     */
+    public CompletableFuture<List<Ticket>> bookHeld(Integer showTimeId, List<Integer> seatIds, String sessionId,
+                                                    String customerName, String idempotencyKey) {
+        return submit(showTimeId, new Book(seatIds, sessionId, 0, customerName, idempotencyKey));
+    }
+
+    /**
+     * Books the best block of {@code count} adjacent free seats (see BestAvailableSeatFinder).
+     */
+    public CompletableFuture<List<Ticket>> bookBestAvailable(Integer showTimeId, int count, String customerName,
+                                                             String idempotencyKey) {
+        return submit(showTimeId, new Book(null, null, count, customerName, idempotencyKey));
+    }
+
+    /**
+     * Holds seats for the session, see {@link SeatHoldManager#holdSeats}.
+     */
+    public CompletableFuture<Boolean> hold(Integer showTimeId, List<Integer> seatIds, String sessionId) {
+        return submit(showTimeId, new Hold(seatIds, sessionId));
+    }
+
+    /**
+     * Cancels an active ticket of this showtime; tickets of other showtimes are refused.
+     */
+    public CompletableFuture<Boolean> cancel(Integer showTimeId, Integer ticketId) {
+        return submit(showTimeId, new Cancel(ticketId));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (drainers instanceof ExecutorService pool) {
+            pool.shutdown();
+        }
+    }
+
+    private <T> CompletableFuture<T> submit(Integer showTimeId, Command<T> command) {
+        while (true) {
+            Mailbox mailbox = mailboxes.get(showTimeId);
+            if (mailbox == null) {
+                Mailbox created = new Mailbox(showTimeId);
+                mailbox = mailboxes.putIfAbsent(showTimeId, created);
+                if (mailbox == null) {
+                    mailbox = created;
+                }
+            }
+            if (mailbox.offer(command)) {
+                return command.result;
+            }
+            // Closed by an eviction that is removing it from the map; the next lookup finds or creates its successor
+            Thread.onSpinWait();
+        }
+    }
+
+    private final class Mailbox implements Runnable {
+        // Value of submitters once the mailbox is closed
+        private static final int CLOSED = -1;
+
+        private final int showTimeId;
+        private final ConcurrentLinkedQueue<Command<?>> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        // Submitters between entering and scheduling, or CLOSED; a mailbox is only closed while none is inside
+        private final AtomicInteger submitters = new AtomicInteger();
+        // Set when the showtime was evicted while this mailbox was busy; the drain that leaves it idle removes it
+        volatile boolean evicted;
+
+        private Mailbox(int showTimeId) {
+            this.showTimeId = showTimeId;
+        }
+
+        /**
+         * Enqueues a command and makes sure a drain will run it.
+         *
+         * @return false if the mailbox is closed and the command was not taken.
+         */
+        boolean offer(Command<?> command) {
+            int current;
+            do {
+                current = submitters.get();
+                if (current == CLOSED) {
+                    return false;
+                }
+            } while (!submitters.compareAndSet(current, current + 1));
+            try {
+                queue.add(command);
+                schedule();
+            } finally {
+                submitters.decrementAndGet();
+            }
+            return true;
+        }
+
+        /**
+         * Closes the mailbox if no command is queued, running or being submitted. Once closed it never drains again,
+         * so removing it cannot leave a second drainer running for the same showtime.
+         */
+        boolean closeIfIdle() {
+            if (!submitters.compareAndSet(0, CLOSED)) {
+                return false;
+            }
+            // No command can be added any more, so an idle mailbox stays idle
+            if (queue.isEmpty() && !scheduled.get()) {
+                return true;
+            }
+            submitters.set(0);
+            return false;
+        }
+
+        /**
+         * Starts a drain unless one is already running; that one picks up the new command.
+         */
+        void schedule() {
+            if (scheduled.compareAndSet(false, true)) {
+                try {
+                    drainers.execute(this);
+                } catch (RejectedExecutionException e) {
+                    scheduled.set(false);
+                    Command<?> command;
+                    while ((command = queue.poll()) != null) {
+                        command.result.completeExceptionally(e);
+                    }
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            List<Command<?>> batch = new ArrayList<>(Math.min(batchSize, 64));
+            Command<?> command;
+            while (batch.size() < batchSize && (command = queue.poll()) != null) {
+                batch.add(command);
+            }
+            try {
+                if (!batch.isEmpty()) {
+                    batchSizes.record(batch.size());
+                    drainTimer.record(() -> drain(showTimeId, batch));
+                }
+            } finally {
+                scheduled.set(false);
+                // A command added after the last poll but before the flag was cleared found the drain still running
+                if (!queue.isEmpty()) {
+                    schedule();
+                } else if (evicted && closeIfIdle()) {
+                    mailboxes.remove(showTimeId, this);
+                }
+            }
+        }
+    }
+
+    /**
+     * Applies one batch of a showtime's commands in order, then persists the accepted ones together.
+     */
+    private void drain(int showTimeId, List<Command<?>> batch) {
+        List<Book> bookings = new ArrayList<>();
+        List<Cancel> cancels = new ArrayList<>();
+
+        // 1. Decide every command against the seat state; this thread is the only one booking this showtime
+        for (Command<?> command : batch) {
+            try {
+                if (command instanceof Hold hold) {
+                    hold.result.complete(seatHoldManager.holdSeats(showTimeId, hold.seatIds, hold.sessionId));
+                } else if (command instanceof Cancel cancel) {
+                    cancels.add(cancel);
+                } else if (command instanceof Book book && claim(showTimeId, book)) {
+                    bookings.add(book);
+                }
+            } catch (RuntimeException e) {
+                command.result.completeExceptionally(e);
+            }
+        }
+        if (bookings.isEmpty() && cancels.isEmpty()) {
+            return;
+        }
+
+        // 2. One transaction for the whole batch
+        Map<Book, List<Ticket>> booked;
+        Map<Cancel, Boolean> canceled;
+        try {
+            Map<Book, List<Ticket>> bookedInBatch = new HashMap<>();
+            Map<Cancel, Boolean> canceledInBatch = new HashMap<>();
+            claimTransactions.execute(() -> {
+                bookedInBatch.clear();
+                canceledInBatch.clear();
+                bookedInBatch.putAll(persistBookings(showTimeId, bookings));
+                canceledInBatch.putAll(persistCancels(showTimeId, cancels));
+                return null;
+            });
+            booked = bookedInBatch;
+            canceled = canceledInBatch;
+        } catch (RuntimeException e) {
+            log.warn("Batch of {} commands for showtime {} failed ({}); retrying them one by one.",
+                    bookings.size() + cancels.size(), showTimeId, e.getMessage());
+            persistOneByOne(showTimeId, bookings, cancels);
+            return;
+        }
+        bookings.forEach(book -> book.result.complete(booked.getOrDefault(book, Collections.emptyList())));
+        cancels.forEach(cancel -> cancel.result.complete(canceled.getOrDefault(cancel, false)));
+    }
+
+    private boolean claim(int showTimeId, Book book) {
+        if (book.seatIds == null) {
+            book.claimedSeatIds = seatFinder.claimBestAvailable(showTimeId, book.count);
+        } else if (book.sessionId != null) {
+            book.claimedSeatIds = seatHoldManager.claimForBooking(showTimeId, book.seatIds, book.sessionId)
+                    ? book.seatIds : Collections.emptyList();
+        } else {
+            book.claimedSeatIds = seatManager.tryBookSeats(showTimeId, book.seatIds)
+                    ? book.seatIds : Collections.emptyList();
+        }
+        if (book.claimedSeatIds.isEmpty()) {
+            log.debug("Seats {} for showtime {} could not be claimed.", book.seatIds, showTimeId);
+            book.result.complete(Collections.emptyList());
+            return false;
+        }
+        return true;
+    }
+
+    private void persistOneByOne(int showTimeId, List<Book> bookings, List<Cancel> cancels) {
+        for (Book book : bookings) {
+            SeatClaim claim = new SeatClaim(seatManager, showTimeId, book.claimedSeatIds);
+            try {
+                book.result.complete(claimTransactions.executeWithClaim(claim,
+                        () -> persistBookings(showTimeId, List.of(book)).getOrDefault(book, Collections.emptyList())));
+            } catch (SalesClosedException e) {
+                log.info("Sales of showtime {} closed while booking seats {}; nothing booked.", showTimeId, book.claimedSeatIds);
+                book.result.complete(Collections.emptyList());
+            } catch (RuntimeException e) {
+                book.result.completeExceptionally(e);
+            }
+        }
+        for (Cancel cancel : cancels) {
+            try {
+                cancel.result.complete(claimTransactions.execute(
+                        () -> persistCancels(showTimeId, List.of(cancel)).getOrDefault(cancel, false)));
+            } catch (RuntimeException e) {
+                cancel.result.completeExceptionally(e);
+            }
+        }
+    }
+
+    /**
+     * Writes the tickets of claimed bookings with one price lookup, the ticket inserts and one counter update.
+     * Seats come from SeatManager's layout and the showtime is only referenced by its foreign key.
+     * Bookings whose showtime or seats are gone are released and answered with no tickets.
+     */
+    private Map<Book, List<Ticket>> persistBookings(int showTimeId, List<Book> bookings) {
+        if (bookings.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Optional<BigDecimal> price = showTimeRepository.findTicketPrice(showTimeId);
+        ShowTime showTime = showTimeRepository.getReferenceById(showTimeId);
+
+        Map<Book, List<Ticket>> booked = new HashMap<>();
+        List<Ticket> allTickets = new ArrayList<>();
+        for (Book book : bookings) {
+            List<Seat> seats = book.claimedSeatIds.stream().map(seatId -> seatManager.getSeat(showTimeId, seatId))
+                    .filter(Objects::nonNull).toList();
+            if (price.isEmpty() || seats.size() != book.claimedSeatIds.size()) {
+                if (!seatManager.isOnSale(showTimeId)) {
+                    log.info("Sales of showtime {} closed while booking seats {}; nothing booked.",
+                            showTimeId, book.claimedSeatIds);
+                } else {
+                    log.error("Showtime {} or seats {} not found after in-memory booking. Releasing seats.",
+                            showTimeId, book.claimedSeatIds);
+                }
+                SeatClaimTransactions.afterCommit(() -> new SeatClaim(seatManager, showTimeId, book.claimedSeatIds).release());
+                continue;
+            }
+            List<Ticket> tickets = new ArrayList<>(seats.size());
+            for (Seat seat : seats) {
+                Ticket ticket = new Ticket(showTime, seat, book.customerName, price.get());
+                ticket.setIdempotencyKey(book.idempotencyKey);
+                tickets.add(ticket);
+            }
+            booked.put(book, tickets);
+            allTickets.addAll(tickets);
+        }
+        if (allTickets.isEmpty()) {
+            return booked;
+        }
+        ticketRepository.insertAll(allTickets);
+        if (showTimeRepository.decrementAvailableSeats(showTimeId, allTickets.size()) == 0) {
+            if (!seatManager.isOnSale(showTimeId)) {
+                throw new SalesClosedException(showTimeId); // canceled while the batch was in flight
+            }
+            throw new IllegalStateException("AvailableSeats for showtime " + showTimeId + " is lower than " + allTickets.size());
+        }
+        log.atInfo()
+                .addKeyValue("showTimeId", showTimeId)
+                .addKeyValue("seatCount", allTickets.size())
+                .log("Successfully booked {} seats in {} bookings for showtime {}", allTickets.size(), booked.size(), showTimeId);
+        return booked;
+    }
+
+    /**
+     * Cancels tickets with one lookup and one counter update; seats are released once the transaction commits.
+     */
+    private Map<Cancel, Boolean> persistCancels(int showTimeId, List<Cancel> cancels) {
+        if (cancels.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Map<Integer, Ticket> tickets = new HashMap<>();
+        ticketRepository.findAllById(cancels.stream().map(cancel -> cancel.ticketId).toList())
+                .forEach(ticket -> tickets.put(ticket.getTicketID(), ticket));
+
+        Map<Cancel, Boolean> canceled = new HashMap<>();
+        List<Integer> releasedSeatIds = new ArrayList<>();
+        for (Cancel cancel : cancels) {
+            Ticket ticket = tickets.get(cancel.ticketId);
+            boolean ok = ticket != null && !ticket.getIsCanceled()
+                    && ticket.getShowTime().getShowTimeID() == showTimeId
+                    && !seatManager.isSeatAvailable(showTimeId, ticket.getSeat().getSeatID())
+                    && ticketRepository.markCanceled(cancel.ticketId) > 0; // also refuses a second cancel in this batch
+            if (ok) {
+                releasedSeatIds.add(ticket.getSeat().getSeatID());
+            } else {
+                log.info("Ticket with ID {} is not an active ticket of showtime {}; not canceled.", cancel.ticketId, showTimeId);
+            }
+            canceled.put(cancel, ok);
+        }
+        if (!releasedSeatIds.isEmpty()) {
+            if (showTimeRepository.incrementAvailableSeats(showTimeId, releasedSeatIds.size()) == 0) {
+                // Rolls the batch back; retried one by one, only the cancel that overflows the counter fails
+                throw new IllegalStateException("AvailableSeats for showtime " + showTimeId + " cannot take back "
+                        + releasedSeatIds.size() + " seats");
+            }
+            SeatClaimTransactions.afterCommit(() -> releasedSeatIds.forEach(seatId -> seatManager.tryCancelSeat(showTimeId, seatId)));
+        }
+        return canceled;
+    }
+
+    private abstract static class Command<T> {
+        final CompletableFuture<T> result = new CompletableFuture<>();
+    }
+
+    /**
+     * A booking of given seats, of given seats for {@code sessionId} converting its holds among them, or
+     * ({@code seatIds == null}) of the best {@code count} adjacent seats.
+     */
+    private static final class Book extends Command<List<Ticket>> {
+        final List<Integer> seatIds;
+        final String sessionId;
+        final int count;
+        final String customerName;
+        final String idempotencyKey;
+        List<Integer> claimedSeatIds;
+
+        Book(List<Integer> seatIds, String sessionId, int count, String customerName, String idempotencyKey) {
+            this.seatIds = seatIds;
+            this.sessionId = sessionId;
+            this.count = count;
+            this.customerName = customerName;
+            this.idempotencyKey = idempotencyKey;
+        }
+    }
+
+    private static final class Hold extends Command<Boolean> {
+        final List<Integer> seatIds;
+        final String sessionId;
+
+        Hold(List<Integer> seatIds, String sessionId) {
+            this.seatIds = seatIds;
+            this.sessionId = sessionId;
+        }
+    }
+
+    private static final class Cancel extends Command<Boolean> {
+        final Integer ticketId;
+
+        Cancel(Integer ticketId) {
+            this.ticketId = ticketId;
+        }
+    }
+}
@@ -0,0 +1,528 @@
+package com.movieticketsystem.movieticketapp.service;
+
+import com.movieticketsystem.movieticketapp.model.Seat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Compact seat availability engine for a single showtime.
+ * Every seat gets a dense ordinal in registration order and its booked state is one bit
+ * in an {@link AtomicLongArray} page, so booking and cancelling are a single-word CAS.
+ * SeatID -> ordinal lookups go through a sorted int[] index, so no boxed keys or map nodes are kept per seat.
+ *
+ * Footprint per seat (64-bit JVM, compressed oops), excluding the Seat entity itself:
+ *   previous nested ConcurrentHashMaps ~ 110 bytes (2 CHM nodes, table slots, Integer key, AtomicBoolean)
+ *   this engine                        ~ 12 bytes (sorted id + ordinal ints, Seat[] slot, 1 bit)
+ * e.g. a 300-seat showtime drops from ~33 KB to ~4 KB of bookkeeping.
+ *
+ * Showtimes in the same theater share one immutable {@link SeatIndex} (and its row layout), so per showtime only
+ * the bitmap is kept: 1 bit per seat plus a small fixed overhead, e.g. ~200 bytes for a 300-seat showtime.
+ * Registering seats on a single showtime switches it to a private copy of the index.
+ *
+ * Every state change bumps a version counter, which lets the seat map be rendered from a
+ * precomputed row layout and reused until the next booking or cancellation. The counter is only meaningful
+ * together with the instance's random epoch.
+ *
+ * A closed showtime ({@link #close()}) has every seat booked for good; releases are ignored from then on.
+ */
+final class ShowTimeSeats {
+
+    // Bits per bitmap page. Pages are only ever appended, so a CAS on an existing page is never lost to growth.
+    private static final int PAGE_SHIFT = 10;
+    private static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+    private final ReentrantLock registrationLock = new ReentrantLock();
+    private volatile AtomicLongArray[] pages = new AtomicLongArray[0];
+    // Published after the pages it refers to, so readers that find an ordinal always find its page.
+    private volatile SeatIndex index = SeatIndex.EMPTY;
+    // Bumped after every successful bit flip or registration
+    private final AtomicLong version = new AtomicLong();
+    // Random per instance, as the version starts over whenever a showtime is (re)loaded
+    private final long epoch = ThreadLocalRandom.current().nextLong();
+    private volatile SeatMapSnapshot lastSnapshot;
+    // Index shared with other showtimes of the theater; not counted in this showtime's footprint while in use
+    private final SeatIndex sharedIndex;
+    // Set before the bits are filled, so a release that clears a bit afterwards sees it and undoes the clear
+    private volatile boolean closed;
+
+    ShowTimeSeats() {
+        this.sharedIndex = null;
+    }
+
+    /**
+     * Builds an engine for a whole showtime in one pass, e.g. during start-up warm-up.
+     * Seats whose IDs are in {@code bookedSeatIds} start out booked.
+     */
+    ShowTimeSeats(List<Seat> seats, int[] bookedSeatIds) {
+        this(SeatIndex.of(seats.toArray(new Seat[0])), bookedSeatIds, false);
+    }
+
+    /**
+     * Builds an engine over a theater's shared seat index; only the bitmap is allocated.
+     */
+    ShowTimeSeats(SeatIndex theaterIndex, int[] bookedSeatIds) {
+        this(theaterIndex, bookedSeatIds, true);
+    }
+
+    private ShowTimeSeats(SeatIndex index, int[] bookedSeatIds, boolean shared) {
+        int pageCount = (index.size() + PAGE_SIZE - 1) >>> PAGE_SHIFT;
+        AtomicLongArray[] newPages = new AtomicLongArray[pageCount];
+        for (int i = 0; i < pageCount; i++) {
+            newPages[i] = new AtomicLongArray(PAGE_SIZE / Long.SIZE);
+        }
+        this.pages = newPages;
+        this.index = index;
+        this.sharedIndex = shared ? index : null;
+        for (int seatId : bookedSeatIds) {
+            tryBook(seatId);
+        }
+    }
+
+    /**
+     * Registers a seat as available. Re-registering an existing SeatID replaces the Seat object
+     * and resets the seat to available.
+     */
+    void addSeat(Seat seat) {
+        registrationLock.lock();
+        try {
+            SeatIndex current = index;
+            int ordinal = current.ordinalOf(seat.getSeatID());
+            if (ordinal >= 0) {
+                clearBit(ordinal);
+                index = current.withSeat(ordinal, seat);
+                version.incrementAndGet();
+                return;
+            }
+            ordinal = current.size();
+            if ((ordinal >>> PAGE_SHIFT) >= pages.length) {
+                AtomicLongArray[] grown = Arrays.copyOf(pages, pages.length + 1);
+                grown[pages.length] = new AtomicLongArray(PAGE_SIZE / Long.SIZE);
+                pages = grown;
+            }
+            index = current.withAppended(seat);
+            version.incrementAndGet();
+        } finally {
+            registrationLock.unlock();
+        }
+    }
+
+    /**
+     * Registers many seats with a single index rebuild instead of one copy-on-write per seat.
+     * Seats that are already registered are replaced and reset to available, as in {@link #addSeat(Seat)}.
+     */
+    void addSeats(List<Seat> seats) {
+        registrationLock.lock();
+        try {
+            SeatIndex current = index;
+            Seat[] combined = Arrays.copyOf(current.seatsByOrdinal, current.size() + seats.size());
+            int size = current.size();
+            for (Seat seat : seats) {
+                int ordinal = current.ordinalOf(seat.getSeatID());
+                if (ordinal >= 0) {
+                    clearBit(ordinal);
+                    combined[ordinal] = seat;
+                } else {
+                    combined[size++] = seat;
+                }
+            }
+            int pageCount = (size + PAGE_SIZE - 1) >>> PAGE_SHIFT;
+            if (pageCount > pages.length) {
+                AtomicLongArray[] grown = Arrays.copyOf(pages, pageCount);
+                for (int i = pages.length; i < pageCount; i++) {
+                    grown[i] = new AtomicLongArray(PAGE_SIZE / Long.SIZE);
+                }
+                pages = grown;
+            }
+            index = SeatIndex.of(Arrays.copyOf(combined, size));
+            version.incrementAndGet();
+        } finally {
+            registrationLock.unlock();
+        }
+    }
+
+    boolean isAvailable(int seatId) {
+        int ordinal = index.ordinalOf(seatId);
+        return ordinal >= 0 && !isBooked(ordinal);
+    }
+
+    /**
+     * Atomically flips the seat from available to booked.
+     *
+     * @return true if this call booked the seat, false if it was already booked or is unknown.
+     */
+    boolean tryBook(int seatId) {
+        int ordinal = index.ordinalOf(seatId);
+        return ordinal >= 0 && setBit(ordinal);
+    }
+
+    /**
+     * Atomically flips the seat from booked back to available.
+     *
+     * @return true if this call released the seat, false if it was not booked, is unknown or the showtime is closed.
+     */
+    boolean tryCancel(int seatId) {
+        int ordinal = index.ordinalOf(seatId);
+        return ordinal >= 0 && release(ordinal);
+    }
+
+    /**
+     * Books every seat in one pass, 64 per step, and ignores releases from now on, so no seat can be claimed again.
+     */
+    void close() {
+        closed = true;
+        int size = index.size();
+        for (int base = 0; base < size; base += Long.SIZE) {
+            long mask = size - base >= Long.SIZE ? -1L : (1L << (size - base)) - 1;
+            page(base).getAndAccumulate(wordIndex(base), mask, (current, fill) -> current | fill);
+        }
+        version.incrementAndGet();
+    }
+
+    boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Books every seat in {@code seatIds} or none of them.
+     * Seats are claimed in ascending ordinal order so that competing group bookings always contend
+     * on the same first seat, and claims made before a conflict are released again.
+     *
+     * @return true if all seats were booked by this call, false if any seat was taken, unknown or repeated.
+     */
+    boolean tryBookAll(int[] seatIds) {
+        SeatIndex current = index;
+        int[] ordinals = new int[seatIds.length];
+        for (int i = 0; i < seatIds.length; i++) {
+            ordinals[i] = current.ordinalOf(seatIds[i]);
+            if (ordinals[i] < 0) {
+                return false;
+            }
+        }
+        Arrays.sort(ordinals);
+        for (int i = 1; i < ordinals.length; i++) {
+            if (ordinals[i] == ordinals[i - 1]) {
+                return false;
+            }
+        }
+
+        for (int claimed = 0; claimed < ordinals.length; claimed++) {
+            if (!setBit(ordinals[claimed])) {
+                for (int i = claimed - 1; i >= 0; i--) {
+                    release(ordinals[i]); // unless close() ran meanwhile, which keeps every seat taken
+                }
+                return false;
+            }
+        }
+        return true;
+    }
+
+    int size() {
+        return index.size();
+    }
+
+    long version() {
+        return version.get();
+    }
+
+    /**
+     * Seats not booked (or held) right now, counted 64 per step.
+     */
+    int countAvailable() {
+        int size = index.size();
+        int booked = 0;
+        for (int base = 0; base < size; base += Long.SIZE) {
+            booked += Long.bitCount(page(base).get(wordIndex(base)));
+        }
+        return size - booked;
+    }
+
+    /**
+     * Row-ordered seat map with the current availability. The layout is computed once per index;
+     * a request only overlays the booked bits, and the result is reused while the version is unchanged.
+     */
+    SeatMapSnapshot snapshot() {
+        long before = version.get();
+        SeatMapSnapshot cached = lastSnapshot;
+        if (cached != null && cached.getVersion() == before) {
+            return cached;
+        }
+
+        SeatIndex current = index;
+        SeatLayout layout = current.layout();
+        List<SeatMapSnapshot.Row> rows = new ArrayList<>(layout.rowLabels.length);
+        for (int r = 0; r < layout.rowLabels.length; r++) {
+            int[] ordinals = layout.ordinalsByRow[r];
+            SeatManager.SeatStatus[] statuses = new SeatManager.SeatStatus[ordinals.length];
+            for (int i = 0; i < ordinals.length; i++) {
+                statuses[i] = new SeatManager.SeatStatus(current.seatAt(ordinals[i]), isBooked(ordinals[i]));
+            }
+            rows.add(new SeatMapSnapshot.Row(layout.rowLabels[r], Collections.unmodifiableList(Arrays.asList(statuses))));
+        }
+        SeatMapSnapshot built = new SeatMapSnapshot(epoch, before, Collections.unmodifiableList(rows));
+        // Only cache a snapshot that no concurrent change may have torn
+        if (version.get() == before) {
+            lastSnapshot = built;
+        }
+        return built;
+    }
+
+    /**
+     * Rough retained size of the bookkeeping for this showtime, excluding the Seat objects themselves
+     * and a seat index shared with other showtimes.
+     */
+    long estimatedFootprintBytes() {
+        SeatIndex current = index;
+        long bitmap = (long) pages.length * (16 + PAGE_SIZE / Byte.SIZE);
+        return 64 + bitmap + (current == sharedIndex ? 0 : current.estimatedFootprintBytes());
+    }
+
+    Seat seatAt(int ordinal) {
+        return index.seatAt(ordinal);
+    }
+
+    Seat getSeat(int seatId) {
+        SeatIndex current = index;
+        int ordinal = current.ordinalOf(seatId);
+        return ordinal >= 0 ? current.seatAt(ordinal) : null;
+    }
+
+    /**
+     * Compares the booked bits with an expected set of booked seats, 64 seats per step.
+     * Expected seat IDs that are not registered here are ignored.
+     */
+    SeatManager.BookedSeatDiff diffBooked(int[] expectedBookedSeatIds) {
+        SeatIndex current = index;
+        int size = current.size();
+        long[] expected = new long[(size + 63) >>> 6];
+        for (int seatId : expectedBookedSeatIds) {
+            int ordinal = current.ordinalOf(seatId);
+            if (ordinal >= 0 && ordinal < size) {
+                expected[ordinal >>> 6] |= bitMask(ordinal);
+            }
+        }
+        int[] onlyHere = new int[0];
+        int[] onlyExpected = new int[0];
+        for (int word = 0; word < expected.length; word++) {
+            int base = word << 6;
+            long live = page(base).get(wordIndex(base));
+            for (long differing = live ^ expected[word]; differing != 0; differing &= differing - 1) {
+                int ordinal = base + Long.numberOfTrailingZeros(differing);
+                int seatId = current.seatAt(ordinal).getSeatID();
+                if ((live & bitMask(ordinal)) != 0) {
+                    onlyHere = append(onlyHere, seatId);
+                } else {
+                    onlyExpected = append(onlyExpected, seatId);
+                }
+            }
+        }
+        return new SeatManager.BookedSeatDiff(onlyHere, onlyExpected);
+    }
+
+    private static int[] append(int[] values, int value) {
+        int[] grown = Arrays.copyOf(values, values.length + 1); // differences are rare; no need for a growth policy
+        grown[values.length] = value;
+        return grown;
+    }
+
+    boolean isBooked(int ordinal) {
+        long word = page(ordinal).get(wordIndex(ordinal));
+        return (word & bitMask(ordinal)) != 0;
+    }
+
+    /**
+     * Clears a booked bit unless the showtime is closed; every release goes through here.
+     */
+    private boolean release(int ordinal) {
+        if (closed || !clearBit(ordinal)) {
+            return false;
+        }
+        if (closed) {
+            setBit(ordinal); // raced with close(): the seat must stay taken
+            return false;
+        }
+        return true;
+    }
+
+    private boolean setBit(int ordinal) {
+        AtomicLongArray page = page(ordinal);
+        int word = wordIndex(ordinal);
+        long mask = bitMask(ordinal);
+        while (true) {
+            long current = page.get(word);
+            if ((current & mask) != 0) {
+                return false;
+            }
+            if (page.compareAndSet(word, current, current | mask)) {
+                version.incrementAndGet();
+                return true;
+            }
+        }
+    }
+
+    private boolean clearBit(int ordinal) {
+        AtomicLongArray page = page(ordinal);
+        int word = wordIndex(ordinal);
+        long mask = bitMask(ordinal);
+        while (true) {
+            long current = page.get(word);
+            if ((current & mask) == 0) {
+                return false;
+            }
+            if (page.compareAndSet(word, current, current & ~mask)) {
+                version.incrementAndGet();
+                return true;
+            }
+        }
+    }
+
+    private AtomicLongArray page(int ordinal) {
+        return pages[ordinal >>> PAGE_SHIFT];
+    }
+
+    private static int wordIndex(int ordinal) {
+        return (ordinal & PAGE_MASK) >>> 6;
+    }
+
+    private static long bitMask(int ordinal) {
+        return 1L << (ordinal & 63);
+    }
+
+    /**
+     * Immutable SeatID -> ordinal index. Replaced wholesale on registration (copy-on-write),
+     * which is rare compared to lookups, so one instance can back every showtime of a theater.
+     */
+    static final class SeatIndex {
+        static final SeatIndex EMPTY = new SeatIndex(new int[0], new int[0], new Seat[0]);
+
+        private final int[] sortedSeatIds;
+        private final int[] ordinalsBySortedPosition;
+        private final Seat[] seatsByOrdinal;
+        // Derived lazily; racing threads compute identical layouts, so no locking is needed
+        private SeatLayout layout;
+
+        private SeatIndex(int[] sortedSeatIds, int[] ordinalsBySortedPosition, Seat[] seatsByOrdinal) {
+            this.sortedSeatIds = sortedSeatIds;
+            this.ordinalsBySortedPosition = ordinalsBySortedPosition;
+            this.seatsByOrdinal = seatsByOrdinal;
+        }
+
+        static SeatIndex of(List<Seat> seats) {
+            return of(seats.toArray(new Seat[0]));
+        }
+
+        static SeatIndex of(Seat[] seatsByOrdinal) {
+            long[] idAndOrdinal = new long[seatsByOrdinal.length];
+            for (int ordinal = 0; ordinal < seatsByOrdinal.length; ordinal++) {
+                idAndOrdinal[ordinal] = ((long) seatsByOrdinal[ordinal].getSeatID() << 32) | ordinal;
+            }
+            Arrays.sort(idAndOrdinal);
+            int[] ids = new int[idAndOrdinal.length];
+            int[] ordinals = new int[idAndOrdinal.length];
+            for (int i = 0; i < idAndOrdinal.length; i++) {
+                ids[i] = (int) (idAndOrdinal[i] >> 32);
+                ordinals[i] = (int) idAndOrdinal[i];
+            }
+            return new SeatIndex(ids, ordinals, seatsByOrdinal);
+        }
+
+        int size() {
+            return seatsByOrdinal.length;
+        }
+
+        long estimatedFootprintBytes() {
+            return 3L * 16 + 2L * Integer.BYTES * size() + 4L * size();
+        }
+
+        Seat seatAt(int ordinal) {
+            return seatsByOrdinal[ordinal];
+        }
+
+        SeatLayout layout() {
+            SeatLayout result = layout;
+            if (result == null) {
+                result = SeatLayout.of(seatsByOrdinal);
+                layout = result;
+            }
+            return result;
+        }
+
+        int ordinalOf(int seatId) {
+            int position = Arrays.binarySearch(sortedSeatIds, seatId);
+            return position >= 0 ? ordinalsBySortedPosition[position] : -1;
+        }
+
+        SeatIndex withSeat(int ordinal, Seat seat) {
+            Seat[] seats = seatsByOrdinal.clone();
+            seats[ordinal] = seat;
+            return new SeatIndex(sortedSeatIds, ordinalsBySortedPosition, seats);
+        }
+
+        SeatIndex withAppended(Seat seat) {
+            int seatId = seat.getSeatID();
+            int ordinal = seatsByOrdinal.length;
+            int insertAt = -(Arrays.binarySearch(sortedSeatIds, seatId) + 1);
+
+            int[] ids = new int[sortedSeatIds.length + 1];
+            int[] ordinals = new int[ids.length];
+            System.arraycopy(sortedSeatIds, 0, ids, 0, insertAt);
+            System.arraycopy(ordinalsBySortedPosition, 0, ordinals, 0, insertAt);
+            ids[insertAt] = seatId;
+            ordinals[insertAt] = ordinal;
+            System.arraycopy(sortedSeatIds, insertAt, ids, insertAt + 1, sortedSeatIds.length - insertAt);
+            System.arraycopy(ordinalsBySortedPosition, insertAt, ordinals, insertAt + 1, sortedSeatIds.length - insertAt);
+
+            Seat[] seats = Arrays.copyOf(seatsByOrdinal, ordinal + 1);
+            seats[ordinal] = seat;
+            return new SeatIndex(ids, ordinals, seats);
+        }
+    }
+
+    /**
+     * Seat ordinals grouped by row label and ordered by row, then seat number.
+     * Fully built in the factory and only holds final fields, so it is safe to publish without synchronization.
+     */
+    private static final class SeatLayout {
+        private final String[] rowLabels;
+        private final int[][] ordinalsByRow;
+
+        private SeatLayout(String[] rowLabels, int[][] ordinalsByRow) {
+            this.rowLabels = rowLabels;
+            this.ordinalsByRow = ordinalsByRow;
+        }
+
+        static SeatLayout of(Seat[] seatsByOrdinal) {
+            Integer[] ordered = new Integer[seatsByOrdinal.length];
+            for (int ordinal = 0; ordinal < ordered.length; ordinal++) {
+                ordered[ordinal] = ordinal;
+            }
+            Arrays.sort(ordered, Comparator.<Integer, String>comparing(o -> seatsByOrdinal[o].getSeatRow())
+                    .thenComparing(o -> seatsByOrdinal[o].getSeatNumber()));
+
+            List<String> labels = new ArrayList<>();
+            List<int[]> rows = new ArrayList<>();
+            int start = 0;
+            for (int i = 1; i <= ordered.length; i++) {
+                if (i == ordered.length
+                        || !seatsByOrdinal[ordered[i]].getSeatRow().equals(seatsByOrdinal[ordered[start]].getSeatRow())) {
+                    int[] row = new int[i - start];
+                    for (int j = start; j < i; j++) {
+                        row[j - start] = ordered[j];
+                    }
+                    labels.add(seatsByOrdinal[ordered[start]].getSeatRow());
+                    rows.add(row);
+                    start = i;
+                }
+            }
+            return new SeatLayout(labels.toArray(new String[0]), rows.toArray(new int[0][]));
+        }
+    }
+}
@@ -0,0 +1,297 @@
+package com.movieticketsystem.movieticketapp.service;
+
+import com.movieticketsystem.movieticketapp.model.ShowTime;
+import com.movieticketsystem.movieticketapp.model.Ticket;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Opt-in write-behind persistence for bookings ({@code app.booking.write-behind.enabled=true}).
+ *
+ * A booking whose seats are claimed in SeatManager is appended to the {@link BookingJournal} and
+ * acknowledged as soon as the journal is durable. A single background thread drains the journal
+ * into SQL with multi-row INSERTs and one AvailableSeats UPDATE per showtime per batch.
+ * Undrained records are replayed before the application serves traffic, so a crash loses no booking.
+ * A booking SQL rejects (e.g. its showtime was canceled meanwhile) was already acknowledged, so it is parked in
+ * {@code BookingDeadLetters} with its seats kept booked, and counted as {@code booking.write_behind.dead_letters}
+ * for an operator to repair.
+ */
+@Component
+@ConditionalOnProperty(name = "app.booking.write-behind.enabled", havingValue = "true")
+public class WriteBehindTicketWriter {
+
+    private static final Logger log = LoggerFactory.getLogger(WriteBehindTicketWriter.class);
+
+    // SQL Server allows 2100 parameters per statement; 7 per row keeps well below that
+    private static final int ROWS_PER_INSERT = 200;
+    private static final int COLUMNS = 7;
+    private static final String INSERT_PREFIX =
+            "INSERT INTO Tickets (ShowTimeID, SeatID, BookingTime, CustomerName, Price, IsCanceled, IdempotencyKey) VALUES ";
+    private static final String PARK_SQL = "INSERT INTO BookingDeadLetters "
+            + "(ShowTimeID, SeatID, BookingTime, CustomerName, Price, IdempotencyKey, Error, ParkedAt) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private final BookingJournal journal;
+    private final SeatManager seatManager;
+    private final CatalogCache catalogCache;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final long idleWaitMillis;
+    private final Counter deadLetters;
+
+    private volatile boolean running;
+    private Thread drainThread;
+
+    @Autowired
+    public WriteBehindTicketWriter(BookingJournal journal, SeatManager seatManager, CatalogCache catalogCache,
+                                   JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${app.booking.write-behind.batch-size:500}") int batchSize,
+                                   @Value("${app.booking.write-behind.idle-wait-ms:5}") long idleWaitMillis) {
+        this.journal = journal;
+        this.seatManager = seatManager;
+        this.catalogCache = catalogCache;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.idleWaitMillis = idleWaitMillis;
+        this.deadLetters = Counter.builder("booking.write_behind.dead_letters")
+                .description("Journaled bookings SQL rejected, parked with their seats booked for operator repair")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Replays whatever a previous run left in the journal, then starts the background writer.
+     * Runs before the start-up warm-up, so SeatManager is rebuilt from a Tickets table that already
+     * contains every acknowledged booking.
+     */
+    @PostConstruct
+    public void start() {
+        while (!journal.isEmpty()) {
+            drainOnce();
+        }
+        running = true;
+        drainThread = new Thread(this::drainLoop, "ticket-write-behind");
+        drainThread.setDaemon(true);
+        drainThread.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        drainThread.interrupt();
+        drainThread.join(10_000);
+        // Flush the tail synchronously; anything left is replayed on the next start
+        while (!journal.isEmpty()) {
+            drainOnce();
+        }
+    }
+
+    /**
+     * Journals a booking for seats already claimed in SeatManager and waits until it is durable.
+     *
+     * @return unsaved tickets describing the booking (IDs are assigned once drained), or null if the
+     *         journal is full and the caller should persist synchronously instead.
+     */
+    public List<Ticket> submit(SeatClaim claim, String customerName, String idempotencyKey) {
+        Integer showTimeId = claim.getShowTimeId();
+        // From the catalog cache, so the booking path rarely touches the DB and a price change applies once committed
+        BigDecimal price = catalogCache.getTicketPrice(showTimeId).orElse(null);
+        if (price == null) {
+            return null; // unknown showtime; let the synchronous path report it
+        }
+
+        LocalDateTime bookingTime = LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS); // journal precision
+        int[] seatIds = claim.getSeatIds().stream().mapToInt(Integer::intValue).toArray();
+        long position = journal.append(new BookingJournal.JournalEntry(showTimeId, seatIds, customerName, price, bookingTime,
+                idempotencyKey));
+        if (position < 0) {
+            log.warn("Booking journal is full; persisting synchronously.");
+            return null;
+        }
+        journal.awaitDurable(position);
+
+        ShowTime showTimeRef = new ShowTime();
+        showTimeRef.setShowTimeID(showTimeId);
+        List<Ticket> tickets = new ArrayList<>(seatIds.length);
+        for (int seatId : seatIds) {
+            Ticket ticket = new Ticket(showTimeRef, seatManager.getSeat(showTimeId, seatId), customerName, price);
+            ticket.setBookingTime(bookingTime);
+            ticket.setIdempotencyKey(idempotencyKey);
+            tickets.add(ticket);
+        }
+        return tickets;
+    }
+
+    /**
+     * Waits until every booking journaled so far is in SQL, e.g. before a showtime's tickets are canceled in bulk.
+     *
+     * @return false if the journal did not drain within the timeout.
+     */
+    public boolean flush(Duration timeout) {
+        try {
+            return journal.awaitDrained(timeout.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void drainLoop() {
+        long backoffMillis = idleWaitMillis;
+        while (running) {
+            try {
+                if (drainOnce()) {
+                    backoffMillis = idleWaitMillis;
+                } else {
+                    journal.awaitAppend(idleWaitMillis);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                // Transient DB trouble: keep the records and try again later
+                log.warn("Write-behind drain failed, retrying in {} ms: {}", backoffMillis, e.getMessage());
+                try {
+                    Thread.sleep(backoffMillis);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                backoffMillis = Math.min(backoffMillis * 2, 5_000);
+            }
+        }
+    }
+
+    /**
+     * Writes one batch of journaled bookings to SQL.
+     *
+     * @return true if anything was drained.
+     */
+    private boolean drainOnce() {
+        BookingJournal.Batch batch = journal.readBatch(batchSize);
+        if (batch.entries().isEmpty()) {
+            return false;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> insertBookings(batch.entries()));
+        } catch (DataIntegrityViolationException e) {
+            // One bad booking must not block the rest: isolate it by writing the batch entry by entry
+            batch.entries().forEach(this::insertSingleBooking);
+        }
+        journal.markDrained(batch.endOffset());
+        return true;
+    }
+
+    private void insertSingleBooking(BookingJournal.JournalEntry entry) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> insertBookings(List.of(entry)));
+        } catch (DataIntegrityViolationException e) {
+            if (isAlreadyPersisted(entry)) {
+                return; // replay of a batch that committed just before a crash
+            }
+            // The buyer already holds a confirmation, so the seats must not be sold again. If parking fails too,
+            // the exception leaves the batch in the journal and the drain loop retries it
+            String error = e.getMostSpecificCause().getMessage();
+            park(entry, error);
+            log.error("Parked journaled booking for showtime {} seats {} in BookingDeadLetters; its seats stay booked "
+                    + "until repaired: {}", entry.showTimeId(), Arrays.toString(entry.seatIds()), error);
+        }
+    }
+
+    private void park(BookingJournal.JournalEntry entry, String error) {
+        if (isAlreadyParked(entry)) {
+            return; // replay of a batch parked just before a crash
+        }
+        Timestamp bookingTime = Timestamp.valueOf(entry.bookingTime());
+        Timestamp parkedAt = Timestamp.valueOf(LocalDateTime.now());
+        String reason = error == null || error.length() <= MAX_ERROR_LENGTH ? error : error.substring(0, MAX_ERROR_LENGTH);
+        List<Object[]> rows = new ArrayList<>(entry.seatIds().length);
+        for (int seatId : entry.seatIds()) {
+            rows.add(new Object[]{entry.showTimeId(), seatId, bookingTime, entry.customerName(), entry.price(),
+                    entry.idempotencyKey(), reason, parkedAt});
+        }
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(PARK_SQL, rows));
+        deadLetters.increment();
+    }
+
+    private void insertBookings(List<BookingJournal.JournalEntry> entries) {
+        List<Object[]> rows = new ArrayList<>();
+        Map<Integer, Integer> seatsPerShowTime = new LinkedHashMap<>();
+        for (BookingJournal.JournalEntry entry : entries) {
+            Timestamp bookingTime = Timestamp.valueOf(entry.bookingTime());
+            for (int seatId : entry.seatIds()) {
+                rows.add(new Object[]{entry.showTimeId(), seatId, bookingTime, entry.customerName(), entry.price(), false,
+                        entry.idempotencyKey()});
+            }
+            seatsPerShowTime.merge(entry.showTimeId(), entry.seatIds().length, Integer::sum);
+        }
+
+        for (int from = 0; from < rows.size(); from += ROWS_PER_INSERT) {
+            List<Object[]> chunk = rows.subList(from, Math.min(from + ROWS_PER_INSERT, rows.size()));
+            StringBuilder sql = new StringBuilder(INSERT_PREFIX.length() + chunk.size() * 20).append(INSERT_PREFIX);
+            Object[] args = new Object[chunk.size() * COLUMNS];
+            for (int i = 0; i < chunk.size(); i++) {
+                sql.append(i == 0 ? "(?, ?, ?, ?, ?, ?, ?)" : ", (?, ?, ?, ?, ?, ?, ?)");
+                System.arraycopy(chunk.get(i), 0, args, i * COLUMNS, COLUMNS);
+            }
+            jdbcTemplate.update(sql.toString(), args);
+        }
+
+        seatsPerShowTime.forEach((showTimeId, count) -> {
+            int updated = jdbcTemplate.update("UPDATE ShowTimes SET AvailableSeats = AvailableSeats - ? " +
+                    "WHERE ShowTimeID = ? AND AvailableSeats >= ? AND IsCanceled = ?", count, showTimeId, count, false);
+            if (updated == 0) {
+                // Canceled showtime, or DB and SeatManager disagree: roll back rather than keep unaccounted tickets.
+                // Thrown as an integrity violation so the batch falls back to entry by entry and parks only this booking
+                throw new DataIntegrityViolationException(
+                        "AvailableSeats for showtime " + showTimeId + " is lower than " + count + " or the showtime is canceled");
+            }
+        });
+    }
+
+    // Parking is one transaction per booking, so its first seat tells whether it was parked
+    private boolean isAlreadyParked(BookingJournal.JournalEntry entry) {
+        Integer matches = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM BookingDeadLetters WHERE ShowTimeID = ? AND SeatID = ? AND CustomerName = ? AND BookingTime = ?",
+                Integer.class, entry.showTimeId(), entry.seatIds()[0], entry.customerName(),
+                Timestamp.valueOf(entry.bookingTime()));
+        return matches != null && matches > 0;
+    }
+
+    private boolean isAlreadyPersisted(BookingJournal.JournalEntry entry) {
+        for (int seatId : entry.seatIds()) {
+            Integer matches = jdbcTemplate.queryForObject(
+                    "SELECT COUNT(*) FROM Tickets WHERE ShowTimeID = ? AND SeatID = ? AND CustomerName = ? AND BookingTime = ?",
+                    Integer.class, entry.showTimeId(), seatId, entry.customerName(), Timestamp.valueOf(entry.bookingTime()));
+            if (matches == null || matches == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
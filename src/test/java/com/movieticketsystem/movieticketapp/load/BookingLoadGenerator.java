@@ -0,0 +1,230 @@
+package com.movieticketsystem.movieticketapp.load;
+
+import java.io.IOException;
+import java.net.CookieManager;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Local load generator for a running instance: each simulated buyer (own cookie jar, own thread) keeps loading
+ * the seat page of one showtime and, with the given probability, books a random seat of it.
+ * Prints throughput, latency percentiles and status codes per request type.
+ * A buyer sent to the waiting room polls its queue position until admitted; the time spent there is reported
+ * separately, so a run with a low {@code --app.admission.demand-threshold} and {@code --app.admission.max-active}
+ * exercises admission control.
+ *
+ * Compare execution modes by starting the app once per mode on the same machine and JDK 21:
+ * <pre>
+ *   java -jar target/movieticketapp-0.0.1-SNAPSHOT.jar --spring.threads.virtual.enabled=false   (then =true)
+ *   mvn test-compile exec:java -Dexec.classpathScope=test \
+ *       -Dexec.mainClass=com.movieticketsystem.movieticketapp.load.BookingLoadGenerator \
+ *       -Dexec.args="url=http://localhost:8080 showtime=4 clients=500 duration=60 bookRatio=0.2"
+ * </pre>
+ */
+public class BookingLoadGenerator {
+
+    private static final Pattern SEAT_ID = Pattern.compile("data-seat-id=\"(\\d+)\"");
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            String[] pair = arg.split("=", 2);
+            options.put(pair[0], pair.length > 1 ? pair[1] : "");
+        }
+        String baseUrl = options.getOrDefault("url", "http://localhost:8080");
+        int showTimeId = Integer.parseInt(options.getOrDefault("showtime", "1"));
+        int clients = Integer.parseInt(options.getOrDefault("clients", "100"));
+        long durationSeconds = Long.parseLong(options.getOrDefault("duration", "30"));
+        double bookRatio = Double.parseDouble(options.getOrDefault("bookRatio", "0.1"));
+
+        int[] seatIds = discoverSeatIds(baseUrl, showTimeId);
+        System.out.printf("Load: %d clients for %d s against %s showtime %d (%d seats), book ratio %.2f%n",
+                clients, durationSeconds, baseUrl, showTimeId, seatIds.length, bookRatio);
+
+        long deadline = System.nanoTime() + Duration.ofSeconds(durationSeconds).toNanos();
+        List<Client> workers = new ArrayList<>(clients);
+        for (int i = 0; i < clients; i++) {
+            Client client = new Client(baseUrl, showTimeId, seatIds, bookRatio, deadline);
+            client.thread = new Thread(client, "load-client-" + i);
+            workers.add(client);
+            client.thread.start();
+        }
+        for (Client client : workers) {
+            client.thread.join();
+        }
+
+        Stats seatPage = new Stats();
+        Stats book = new Stats();
+        Stats waiting = new Stats();
+        for (Client client : workers) {
+            seatPage.merge(client.seatPage);
+            book.merge(client.book);
+            waiting.merge(client.waiting);
+        }
+        seatPage.print("GET  /showtime/" + showTimeId, durationSeconds);
+        book.print("POST /book", durationSeconds);
+        waiting.print("waiting room", durationSeconds);
+    }
+
+    private static int[] discoverSeatIds(String baseUrl, int showTimeId) throws IOException, InterruptedException {
+        HttpClient http = HttpClient.newBuilder()
+                .cookieHandler(new CookieManager())
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+        String page;
+        do {
+            // Follows the redirect into the waiting room if it is already open
+            page = http.send(HttpRequest.newBuilder(URI.create(baseUrl + "/showtime/" + showTimeId)).build(),
+                    HttpResponse.BodyHandlers.ofString()).body();
+        } while (!SEAT_ID.matcher(page).find() && page.contains("id=\"position\"") && pause(1000));
+        Matcher matcher = SEAT_ID.matcher(page);
+        List<Integer> ids = new ArrayList<>();
+        while (matcher.find()) {
+            ids.add(Integer.parseInt(matcher.group(1)));
+        }
+        if (ids.isEmpty()) {
+            throw new IllegalStateException("No seats found on the page of showtime " + showTimeId);
+        }
+        return ids.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private static boolean pause(long millis) throws InterruptedException {
+        Thread.sleep(millis);
+        return true;
+    }
+
+    private static final class Client implements Runnable {
+        private final HttpClient http = HttpClient.newBuilder()
+                .cookieHandler(new CookieManager())
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        private final String baseUrl;
+        private final int showTimeId;
+        private final int[] seatIds;
+        private final double bookRatio;
+        private final long deadline;
+        private final Stats seatPage = new Stats();
+        private final Stats book = new Stats();
+        private final Stats waiting = new Stats();
+        private Thread thread;
+
+        private Client(String baseUrl, int showTimeId, int[] seatIds, double bookRatio, long deadline) {
+            this.baseUrl = baseUrl;
+            this.showTimeId = showTimeId;
+            this.seatIds = seatIds;
+            this.bookRatio = bookRatio;
+            this.deadline = deadline;
+        }
+
+        @Override
+        public void run() {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            while (System.nanoTime() < deadline) {
+                if (random.nextDouble() < bookRatio) {
+                    int seatId = seatIds[random.nextInt(seatIds.length)];
+                    String form = "showTimeId=" + showTimeId + "&seatId=" + seatId + "&customerName=load-" + thread.getName();
+                    send(book, HttpRequest.newBuilder(URI.create(baseUrl + "/book"))
+                            .header("Content-Type", "application/x-www-form-urlencoded")
+                            .POST(HttpRequest.BodyPublishers.ofString(form))
+                            .build());
+                } else {
+                    send(seatPage, HttpRequest.newBuilder(URI.create(baseUrl + "/showtime/" + showTimeId)).build());
+                }
+            }
+        }
+
+        private void send(Stats stats, HttpRequest request) {
+            long start = System.nanoTime();
+            int status;
+            try {
+                HttpResponse<Void> response = http.send(request, HttpResponse.BodyHandlers.discarding());
+                status = response.statusCode();
+                if (response.headers().firstValue("Location").filter(location -> location.contains("/queue")).isPresent()) {
+                    status = 0; // sent to the waiting room
+                    stats.record(System.nanoTime() - start, status);
+                    waitForAdmission();
+                    return;
+                }
+            } catch (IOException e) {
+                status = -1; // connection refused, reset or timed out
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            stats.record(System.nanoTime() - start, status);
+        }
+
+        /**
+         * Polls the queue position like the waiting room page does (faster, to keep the run short) until admitted.
+         */
+        private void waitForAdmission() throws IOException, InterruptedException {
+            long start = System.nanoTime();
+            HttpRequest seats = HttpRequest.newBuilder(URI.create(baseUrl + "/showtime/" + showTimeId)).build();
+            HttpRequest poll = HttpRequest.newBuilder(URI.create(baseUrl + "/showtime/" + showTimeId + "/queue/status")).build();
+            while (System.nanoTime() < deadline) {
+                String body = http.send(poll, HttpResponse.BodyHandlers.ofString()).body();
+                boolean admitted = body.contains("\"admitted\":true");
+                if (!admitted && body.contains("\"position\":-1")) {
+                    // Not queued (turned away from /book, or skipped): the seat page admits or queues the session
+                    admitted = http.send(seats, HttpResponse.BodyHandlers.discarding()).headers()
+                            .firstValue("Location").filter(location -> location.contains("/queue")).isEmpty();
+                }
+                if (admitted) {
+                    waiting.record(System.nanoTime() - start, 200);
+                    return;
+                }
+                Thread.sleep(250);
+            }
+            waiting.record(System.nanoTime() - start, 0); // still waiting when the run ended
+        }
+    }
+
+    private static final class Stats {
+        private long[] latencies = new long[1024];
+        private int count;
+        private final Map<Integer, Integer> statuses = new TreeMap<>();
+
+        void record(long nanos, int status) {
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = nanos;
+            statuses.merge(status, 1, Integer::sum);
+        }
+
+        void merge(Stats other) {
+            latencies = Arrays.copyOf(latencies, Math.max(latencies.length, count + other.count));
+            System.arraycopy(other.latencies, 0, latencies, count, other.count);
+            count += other.count;
+            other.statuses.forEach((status, n) -> statuses.merge(status, n, Integer::sum));
+        }
+
+        void print(String label, long durationSeconds) {
+            if (count == 0) {
+                System.out.printf("%-22s no requests%n", label);
+                return;
+            }
+            long[] sorted = Arrays.copyOf(latencies, count);
+            Arrays.sort(sorted);
+            System.out.printf("%-22s %8d req %9.1f req/s  p50 %7.2f ms  p95 %7.2f ms  p99 %7.2f ms  max %7.2f ms  status %s%n",
+                    label, count, (double) count / durationSeconds, millis(sorted, 0.50), millis(sorted, 0.95),
+                    millis(sorted, 0.99), sorted[count - 1] / 1e6, statuses);
+        }
+
+        private static double millis(long[] sorted, double quantile) {
+            return sorted[Math.min(sorted.length - 1, (int) Math.ceil(quantile * sorted.length) - 1)] / 1e6;
+        }
+    }
+}
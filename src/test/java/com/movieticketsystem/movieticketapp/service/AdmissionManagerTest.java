@@ -0,0 +1,63 @@
+package com.movieticketsystem.movieticketapp.service;
+
+import com.movieticketsystem.movieticketapp.support.ShowTimeFixture;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class AdmissionManagerTest {
+
+    @Autowired
+    private SeatManager seatManager;
+    @Autowired
+    private SeatHoldManager seatHoldManager;
+    @Autowired
+    private ShowTimeFixture showTimeFixture;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private AdmissionManager admissionManager;
+    private Integer showTimeId;
+    private List<Integer> seatIds;
+
+    @BeforeEach
+    void createShowTime() {
+        ShowTimeFixture.Screening screening = showTimeFixture.create("Admission", 10, new BigDecimal("100000.0"));
+        showTimeId = screening.showTimeId();
+        seatIds = screening.seatIds();
+        // The room opens at the first visit and admits one session at a time
+        admissionManager = new AdmissionManager(true, 1, 1, Duration.ofMinutes(10), Duration.ofSeconds(30),
+                Duration.ofMinutes(2), seatManager, seatHoldManager, meterRegistry);
+    }
+
+    @Test
+    void admitsSessionsHoldingSeatsWhenTheRoomOpens() {
+        assertThat(seatHoldManager.holdSeats(showTimeId, List.of(seatIds.get(0)), "holder")).isTrue();
+
+        assertThat(admissionManager.enter(showTimeId, "first")).isTrue(); // opens the room and takes its one slot
+        assertThat(admissionManager.enter(showTimeId, "second")).isFalse();
+
+        assertThat(admissionManager.isAdmitted(showTimeId, "holder")).isTrue();
+        assertThat(admissionManager.isAdmitted(showTimeId, "second")).isFalse();
+    }
+
+    @Test
+    void dropsTheRoomAndItsGaugesWithTheShowTime() {
+        admissionManager.enter(showTimeId, "first");
+        assertThat(meterRegistry.find("admission.waiting").tag("showtime", String.valueOf(showTimeId)).gauge()).isNotNull();
+
+        seatManager.evictShowTime(showTimeId);
+
+        assertThat(meterRegistry.find("admission.waiting").gauges()).isEmpty();
+        assertThat(meterRegistry.find("admission.active").gauges()).isEmpty();
+        assertThat(admissionManager.position(showTimeId, "first")).isZero();
+    }
+}
@@ -0,0 +1,91 @@
+package com.movieticketsystem.movieticketapp.service;
+
+import com.movieticketsystem.movieticketapp.model.Ticket;
+import com.movieticketsystem.movieticketapp.repository.ShowTimeRepository;
+import com.movieticketsystem.movieticketapp.repository.TicketRepository;
+import com.movieticketsystem.movieticketapp.support.Concurrently;
+import com.movieticketsystem.movieticketapp.support.ShowTimeFixture;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class AvailableSeatsConcurrencyTest {
+
+    private static final int THREADS = 16;
+    private static final int SEATS = 60;
+    private static final Duration TIMEOUT = Duration.ofSeconds(60);
+
+    @Autowired
+    private BookingService bookingService;
+    @Autowired
+    private SeatManager seatManager;
+    @Autowired
+    private ShowTimeRepository showTimeRepository;
+    @Autowired
+    private TicketRepository ticketRepository;
+    @Autowired
+    private ShowTimeFixture showTimeFixture;
+
+    private Integer showTimeId;
+    private List<Integer> seatIds;
+
+    @BeforeEach
+    void createShowTime() {
+        ShowTimeFixture.Screening screening = showTimeFixture.create("Stress Test", SEATS, new BigDecimal("100000.0"));
+        showTimeId = screening.showTimeId();
+        seatIds = screening.seatIds();
+    }
+
+    @Test
+    void availableSeatsStaysExactUnderConcurrentBookAndCancel() throws Exception {
+        ConcurrentLinkedQueue<Ticket> booked = new ConcurrentLinkedQueue<>();
+
+        // Every thread races for every seat in its own order; each seat must be booked exactly once
+        Concurrently.run(THREADS, TIMEOUT, thread -> {
+            List<Integer> order = new ArrayList<>(seatIds);
+            Collections.shuffle(order);
+            for (Integer seatId : order) {
+                Ticket ticket = bookingService.bookSeat(showTimeId, seatId, "buyer-" + thread);
+                if (ticket != null) {
+                    booked.add(ticket);
+                }
+            }
+        });
+        assertThat(booked).hasSize(SEATS);
+        assertThat(availableSeats()).isZero();
+
+        // Every thread tries to cancel every other ticket; each must be canceled exactly once
+        List<Integer> toCancel = booked.stream().map(Ticket::getTicketID).filter(id -> id % 2 == 0).toList();
+        ConcurrentLinkedQueue<Integer> canceled = new ConcurrentLinkedQueue<>();
+        Concurrently.run(THREADS, TIMEOUT, thread -> {
+            for (Integer ticketId : toCancel) {
+                if (bookingService.cancelTicket(ticketId)) {
+                    canceled.add(ticketId);
+                }
+            }
+        });
+        assertThat(canceled).hasSameSizeAs(toCancel);
+
+        long activeTickets = ticketRepository.findAll().stream()
+                .filter(t -> t.getShowTime().getShowTimeID().equals(showTimeId) && !t.getIsCanceled())
+                .count();
+        long freeInMemory = seatIds.stream().filter(seatId -> seatManager.isSeatAvailable(showTimeId, seatId)).count();
+        assertThat(availableSeats()).isEqualTo(SEATS - activeTickets);
+        assertThat(freeInMemory).isEqualTo(SEATS - activeTickets);
+    }
+
+    private int availableSeats() {
+        return showTimeRepository.findById(showTimeId).orElseThrow().getAvailableSeats();
+    }
+}
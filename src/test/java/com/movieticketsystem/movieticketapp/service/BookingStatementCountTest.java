@@ -0,0 +1,74 @@
+package com.movieticketsystem.movieticketapp.service;
+
+import com.movieticketsystem.movieticketapp.model.Ticket;
+import com.movieticketsystem.movieticketapp.support.ShowTimeFixture;
+import com.movieticketsystem.movieticketapp.support.SqlStatementCounter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Pins the number of SQL statements per booking and cancellation, so a lazy load sneaking back into the
+ * booking path shows up as a failure rather than as extra round trips in production.
+ */
+@SpringBootTest
+class BookingStatementCountTest {
+
+    private static final int SEATS = 10;
+
+    @Autowired
+    private BookingService bookingService;
+    @Autowired
+    private ShowTimeFixture showTimeFixture;
+
+    private Integer showTimeId;
+    private List<Integer> seatIds;
+
+    @BeforeEach
+    void createShowTime() {
+        ShowTimeFixture.Screening screening = showTimeFixture.create("Statement Count", SEATS, new BigDecimal("100000.0"));
+        showTimeId = screening.showTimeId();
+        seatIds = screening.seatIds();
+    }
+
+    @Test
+    void singleSeatBookingCostsOneSelectOneInsertAndOneUpdate() {
+        SqlStatementCounter.reset();
+        Ticket ticket = bookingService.bookSeat(showTimeId, seatIds.get(0), "Counter");
+
+        assertThat(ticket).isNotNull();
+        // What callers read from the result must not need another round trip
+        assertThat(ticket.getSeat().getSeatRow()).isEqualTo("A");
+        assertThat(ticket.getShowTime().getShowTimeID()).isEqualTo(showTimeId);
+        assertThat(SqlStatementCounter.count()).isEqualTo(3);
+    }
+
+    @Test
+    void groupBookingCostsTheSameNumberOfStatementsWhateverItsSize() {
+        SqlStatementCounter.reset();
+        List<Ticket> tickets = bookingService.bookSeats(showTimeId, seatIds.subList(1, 4), "Counter");
+
+        assertThat(tickets).hasSize(3);
+        assertThat(tickets).extracting(Ticket::getTicketID).doesNotContainNull().doesNotHaveDuplicates();
+        assertThat(SqlStatementCounter.count()).isEqualTo(4);
+
+        SqlStatementCounter.reset();
+        assertThat(bookingService.bookSeats(showTimeId, seatIds.subList(5, 10), "Counter")).hasSize(5);
+        assertThat(SqlStatementCounter.count()).isEqualTo(4);
+    }
+
+    @Test
+    void cancellationCostsOneSelectAndTwoUpdates() {
+        Ticket ticket = bookingService.bookSeat(showTimeId, seatIds.get(4), "Counter");
+
+        SqlStatementCounter.reset();
+        assertThat(bookingService.cancelTicket(ticket.getTicketID())).isTrue();
+        assertThat(SqlStatementCounter.count()).isEqualTo(3);
+    }
+}
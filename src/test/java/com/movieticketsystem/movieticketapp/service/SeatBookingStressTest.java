@@ -0,0 +1,302 @@
+package com.movieticketsystem.movieticketapp.service;
+
+import com.movieticketsystem.movieticketapp.model.Ticket;
+import com.movieticketsystem.movieticketapp.repository.ShowTimeRepository;
+import com.movieticketsystem.movieticketapp.support.Concurrently;
+import com.movieticketsystem.movieticketapp.support.ShowTimeFixture;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Stress test for the booking path. Worker threads book single seats, book groups, hold and then book, and
+ * cancel recent tickets of one showtime until the run time is up, recording every operation with the time it
+ * was invoked and the time it returned. Meanwhile a sampler checks AvailableSeats against the active tickets in
+ * single-statement snapshots of the database.
+ *
+ * Afterwards the history is checked per seat. A ticket was certainly active from the moment its booking (or
+ * the hold it came from) returned until its cancel was invoked. If two tickets of one seat have overlapping
+ * windows, no order of the operations explains them, so the seat was sold twice. The history must also match
+ * the Tickets table, AvailableSeats must equal capacity minus active tickets, and SeatManager must agree with
+ * the database.
+ *
+ * The defaults keep the build fast. A longer run:
+ * {@code mvn test -Dtest=SeatBookingStressTest -Dstress.threads=32 -Dstress.duration=60s -Dstress.seats=300}
+ */
+@SpringBootTest
+class SeatBookingStressTest {
+
+    private static final Logger log = LoggerFactory.getLogger(SeatBookingStressTest.class);
+
+    private static final int THREADS = Integer.getInteger("stress.threads", 8);
+    private static final Duration DURATION = DurationStyle.detectAndParse(System.getProperty("stress.duration", "3s"));
+    private static final int SEATS = Integer.getInteger("stress.seats", 40);
+    // Recently issued ticket IDs that cancellers pick from; threads often pick the same one
+    private static final int RECENT_TICKETS = 64;
+
+    @Autowired
+    private BookingService bookingService;
+    @Autowired
+    private SeatManager seatManager;
+    @Autowired
+    private SeatHoldManager seatHoldManager;
+    @Autowired
+    private ShowTimeRepository showTimeRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private ShowTimeFixture showTimeFixture;
+
+    private Integer showTimeId;
+    private List<Integer> seatIds;
+
+    private final ConcurrentLinkedQueue<Operation> history = new ConcurrentLinkedQueue<>();
+    private final AtomicIntegerArray recentTickets = new AtomicIntegerArray(RECENT_TICKETS);
+    private final AtomicInteger ticketsIssued = new AtomicInteger();
+
+    @BeforeEach
+    void createShowTime() {
+        ShowTimeFixture.Screening screening = showTimeFixture.create("Booking Stress", SEATS, new BigDecimal("100000.0"));
+        showTimeId = screening.showTimeId();
+        seatIds = screening.seatIds();
+    }
+
+    @Test
+    void neverSellsASeatTwiceAndConvergesWithTheDatabase() throws Exception {
+        ConcurrentLinkedQueue<String> counterViolations = new ConcurrentLinkedQueue<>();
+        AtomicBoolean running = new AtomicBoolean(true);
+        Thread sampler = new Thread(() -> {
+            while (running.get()) {
+                checkAvailableSeatsCounter(counterViolations);
+            }
+        }, "stress-sampler");
+        sampler.start();
+
+        long deadline = System.nanoTime() + DURATION.toNanos();
+        try {
+            Concurrently.run(THREADS, DURATION.plusSeconds(60), thread -> {
+                for (int n = 0; System.nanoTime() - deadline < 0; n++) {
+                    runRandomOperation(thread, n);
+                }
+            });
+        } finally {
+            running.set(false);
+            sampler.join();
+        }
+        log.info("Stress run: {} threads, {} operations in {}, {} tickets issued",
+                THREADS, history.size(), DURATION, ticketsIssued.get());
+
+        assertThat(counterViolations).as("AvailableSeats vs active tickets during the run").isEmpty();
+        Map<Integer, Integer> active = checkHistory();
+        assertThat(activeTicketsInDatabase()).as("active tickets in the database vs the history").isEqualTo(active);
+        assertThat(availableSeats()).as("AvailableSeats").isEqualTo(SEATS - active.size());
+        assertThat(awaitConvergence()).as("SeatManager vs the Tickets table").isTrue();
+        assertThat(ticketsIssued.get()).as("tickets issued").isPositive();
+    }
+
+    private void runRandomOperation(int thread, int n) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int choice = random.nextInt(100);
+        if (choice < 35) {
+            List<Integer> seats = randomSeats(1);
+            long invokedAt = System.nanoTime();
+            Ticket ticket = bookingService.bookSeat(showTimeId, seats.get(0), "stress-" + thread);
+            record(thread, Kind.BOOK, seats, ticket != null ? List.of(ticket) : List.of(), invokedAt, 0);
+        } else if (choice < 50) {
+            List<Integer> seats = randomSeats(2 + random.nextInt(2));
+            long invokedAt = System.nanoTime();
+            List<Ticket> tickets = bookingService.bookSeats(showTimeId, seats, "stress-" + thread);
+            record(thread, Kind.BOOK_GROUP, seats, tickets, invokedAt, 0);
+        } else if (choice < 65) {
+            List<Integer> seats = randomSeats(1 + random.nextInt(2));
+            String sessionId = "stress-" + thread + "-" + n;
+            long invokedAt = System.nanoTime();
+            boolean held = bookingService.holdSeats(showTimeId, seats, sessionId);
+            long heldAt = System.nanoTime();
+            history.add(new Operation(thread, Kind.HOLD, seats, List.of(), held, invokedAt, heldAt, heldAt));
+            if (held) {
+                List<Ticket> tickets = bookingService.bookHeldSeats(showTimeId, seats, sessionId, "stress-" + thread);
+                record(thread, Kind.BOOK_HELD, seats, tickets, heldAt, heldAt);
+            }
+        } else {
+            int ticketId = recentTickets.get(random.nextInt(RECENT_TICKETS));
+            if (ticketId != 0) {
+                long invokedAt = System.nanoTime();
+                boolean canceled = bookingService.cancelTicket(ticketId);
+                long returnedAt = System.nanoTime();
+                history.add(new Operation(thread, Kind.CANCEL, List.of(), List.of(ticketId), canceled,
+                        invokedAt, returnedAt, returnedAt));
+            }
+        }
+    }
+
+    /**
+     * Records a booking; the seats count as taken from {@code claimedAt}, or from its return if that is 0.
+     */
+    private void record(int thread, Kind kind, List<Integer> seats, List<Ticket> tickets, long invokedAt, long claimedAt) {
+        long returnedAt = System.nanoTime();
+        // Tickets come back in the order of the requested seats
+        List<Integer> ticketIds = tickets.stream().map(Ticket::getTicketID).toList();
+        history.add(new Operation(thread, kind, seats, ticketIds, !tickets.isEmpty(), invokedAt, returnedAt,
+                claimedAt != 0 ? claimedAt : returnedAt));
+        for (Integer ticketId : ticketIds) {
+            recentTickets.set(ticketsIssued.getAndIncrement() % RECENT_TICKETS, ticketId);
+        }
+    }
+
+    private List<Integer> randomSeats(int count) {
+        List<Integer> shuffled = new ArrayList<>(seatIds);
+        Collections.shuffle(shuffled, ThreadLocalRandom.current());
+        return List.copyOf(shuffled.subList(0, count));
+    }
+
+    /**
+     * Replays the history and returns the tickets still active (ticket ID -> seat ID).
+     */
+    private Map<Integer, Integer> checkHistory() {
+        Map<Integer, Integer> seatOfTicket = new HashMap<>();
+        Map<Integer, Lifetime> lifetimes = new HashMap<>();
+        for (Operation op : history) {
+            if (op.ok() && op.kind().books()) {
+                assertThat(op.ticketIds()).as("tickets of %s", op).hasSameSizeAs(op.seatIds());
+                for (int i = 0; i < op.ticketIds().size(); i++) {
+                    Integer ticketId = op.ticketIds().get(i);
+                    assertThat(seatOfTicket.put(ticketId, op.seatIds().get(i))).as("ticket %d issued twice", ticketId).isNull();
+                    lifetimes.put(ticketId, new Lifetime(ticketId, op.claimedAt(), Long.MAX_VALUE));
+                }
+            }
+        }
+        for (Operation op : history) {
+            if (op.kind() == Kind.CANCEL && op.ok()) {
+                Integer ticketId = op.ticketIds().get(0);
+                Lifetime lifetime = lifetimes.get(ticketId);
+                assertThat(lifetime).as("canceled ticket %d was issued", ticketId).isNotNull();
+                assertThat(lifetime.canceledAt()).as("ticket %d canceled twice", ticketId).isEqualTo(Long.MAX_VALUE);
+                lifetimes.put(ticketId, new Lifetime(ticketId, lifetime.claimedAt(), op.invokedAt()));
+            }
+        }
+        // A granted hold must turn into tickets; the holds in this test are far from expiring
+        assertThat(history).filteredOn(op -> op.kind() == Kind.BOOK_HELD && !op.ok()).as("lost holds").isEmpty();
+
+        Map<Integer, List<Lifetime>> bySeat = lifetimes.values().stream()
+                .collect(Collectors.groupingBy(lifetime -> seatOfTicket.get(lifetime.ticketId())));
+        List<String> doubleSales = new ArrayList<>();
+        bySeat.forEach((seatId, seatLifetimes) -> {
+            seatLifetimes.sort(Comparator.comparingLong(Lifetime::claimedAt));
+            Lifetime latestEnding = null;
+            for (Lifetime lifetime : seatLifetimes) {
+                if (latestEnding != null && latestEnding.canceledAt() - lifetime.claimedAt() > 0) {
+                    doubleSales.add("seat " + seatId + ": tickets " + latestEnding.ticketId() + " and " + lifetime.ticketId());
+                }
+                if (latestEnding == null || lifetime.canceledAt() - latestEnding.canceledAt() > 0) {
+                    latestEnding = lifetime;
+                }
+            }
+        });
+        assertThat(doubleSales).as("seats with two active tickets at once").isEmpty();
+
+        Map<Integer, Integer> active = new HashMap<>();
+        lifetimes.values().stream()
+                .filter(lifetime -> lifetime.canceledAt() == Long.MAX_VALUE)
+                .forEach(lifetime -> active.put(lifetime.ticketId(), seatOfTicket.get(lifetime.ticketId())));
+        return active;
+    }
+
+    /**
+     * Reads AvailableSeats and the active ticket count in one statement, so both come from the same snapshot.
+     */
+    private void checkAvailableSeatsCounter(ConcurrentLinkedQueue<String> violations) {
+        Map<String, Object> row = jdbcTemplate.queryForMap(
+                "select s.AvailableSeats as available, (select count(*) from Tickets t where t.ShowTimeID = s.ShowTimeID"
+                        + " and t.IsCanceled = false) as active from ShowTimes s where s.ShowTimeID = ?", showTimeId);
+        int available = ((Number) row.get("available")).intValue();
+        int activeTickets = ((Number) row.get("active")).intValue();
+        if (available != SEATS - activeTickets) {
+            violations.add("AvailableSeats " + available + " with " + activeTickets + " active tickets");
+        }
+    }
+
+    private Map<Integer, Integer> activeTicketsInDatabase() {
+        Map<Integer, Integer> active = new HashMap<>();
+        jdbcTemplate.query("select TicketID, SeatID from Tickets where ShowTimeID = ? and IsCanceled = false",
+                rs -> {
+                    active.put(rs.getInt("TicketID"), rs.getInt("SeatID"));
+                }, showTimeId);
+        return active;
+    }
+
+    private int availableSeats() {
+        return showTimeRepository.findById(showTimeId).orElseThrow().getAvailableSeats();
+    }
+
+    /**
+     * Waits briefly for SeatManager to match the Tickets table; seats still held by a session are expected
+     * to be booked only in memory.
+     */
+    private boolean awaitConvergence() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (true) {
+            int[] persisted = activeTicketsInDatabase().values().stream().mapToInt(Integer::intValue).toArray();
+            SeatManager.BookedSeatDiff diff = seatManager.diffBookedSeats(showTimeId, persisted);
+            boolean converged = diff != null && diff.bookedOnlyExpected().length == 0
+                    && Arrays.stream(diff.bookedOnlyInMemory()).allMatch(seatId -> seatHoldManager.isHeld(showTimeId, seatId));
+            if (converged) {
+                return true;
+            }
+            if (System.nanoTime() - deadline > 0) {
+                log.error("SeatManager did not converge: booked only in memory {}, only in the database {}",
+                        Arrays.toString(diff != null ? diff.bookedOnlyInMemory() : null),
+                        Arrays.toString(diff != null ? diff.bookedOnlyExpected() : null));
+                return false;
+            }
+            Thread.sleep(50);
+        }
+    }
+
+    private enum Kind {
+        BOOK, BOOK_GROUP, HOLD, BOOK_HELD, CANCEL;
+
+        boolean books() {
+            return this == BOOK || this == BOOK_GROUP || this == BOOK_HELD;
+        }
+    }
+
+    /**
+     * One call as seen by its caller; times are System.nanoTime().
+     * {@code claimedAt} is when the booked seats were certainly taken: the return of the booking, or of the hold
+     * a held booking came from.
+     */
+    private record Operation(int thread, Kind kind, List<Integer> seatIds, List<Integer> ticketIds, boolean ok,
+                             long invokedAt, long returnedAt, long claimedAt) {
+    }
+
+    /**
+     * The window in which a ticket was certainly active: from its claim to the invocation of its cancel.
+     */
+    private record Lifetime(Integer ticketId, long claimedAt, long canceledAt) {
+    }
+}
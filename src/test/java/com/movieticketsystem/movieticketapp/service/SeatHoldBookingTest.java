@@ -0,0 +1,61 @@
+package com.movieticketsystem.movieticketapp.service;
+
+import com.movieticketsystem.movieticketapp.support.ShowTimeFixture;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class SeatHoldBookingTest {
+
+    private static final int SEATS = 10;
+
+    @Autowired
+    private BookingRouter bookingRouter;
+    @Autowired
+    private SeatHoldManager seatHoldManager;
+    @Autowired
+    private SeatManager seatManager;
+    @Autowired
+    private ShowTimeFixture showTimeFixture;
+
+    private Integer showTimeId;
+    private List<Integer> seatIds;
+
+    @BeforeEach
+    void createShowTime() {
+        ShowTimeFixture.Screening screening = showTimeFixture.create("Seat Holds", SEATS, new BigDecimal("100000.0"));
+        showTimeId = screening.showTimeId();
+        seatIds = screening.seatIds();
+    }
+
+    @Test
+    void booksHeldAndFreeSeatsTogether() {
+        assertThat(bookingRouter.hold(showTimeId, List.of(seatIds.get(0)), "checkout")).isTrue();
+
+        List<BookingRouter.BookedTicket> tickets = bookingRouter.book(showTimeId, seatIds.subList(0, 2), "Buyer",
+                "checkout", null);
+
+        assertThat(tickets).hasSize(2);
+        assertThat(seatHoldManager.heldSeatIds(showTimeId, "checkout")).isEmpty();
+    }
+
+    @Test
+    void keepsTheHoldWhenAnotherSeatOfTheBookingIsTaken() {
+        assertThat(bookingRouter.hold(showTimeId, List.of(seatIds.get(0)), "checkout")).isTrue();
+        assertThat(bookingRouter.book(showTimeId, List.of(seatIds.get(1)), "Other", "other", null)).hasSize(1);
+
+        assertThat(bookingRouter.book(showTimeId, seatIds.subList(0, 2), "Buyer", "checkout", null)).isEmpty();
+        assertThat(bookingRouter.hold(showTimeId, seatIds.subList(1, 3), "checkout")).isFalse();
+
+        // Neither failure touched the hold, nor left a seat claimed
+        assertThat(seatHoldManager.heldSeatIds(showTimeId, "checkout")).containsExactly(seatIds.get(0));
+        assertThat(seatManager.isSeatAvailable(showTimeId, seatIds.get(2))).isTrue();
+    }
+}
@@ -0,0 +1,188 @@
+package com.movieticketsystem.movieticketapp.service;
+
+import com.movieticketsystem.movieticketapp.model.Ticket;
+import com.movieticketsystem.movieticketapp.repository.ShowTimeRepository;
+import com.movieticketsystem.movieticketapp.repository.TicketRepository;
+import com.movieticketsystem.movieticketapp.support.ShowTimeFixture;
+import com.movieticketsystem.movieticketapp.support.SqlStatementCounter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class ShowTimeCancellationTest {
+
+    private static final int THREADS = 8;
+    private static final int SEATS = 40;
+    private static final BigDecimal PRICE = new BigDecimal("100000.00");
+
+    @Autowired
+    private BookingService bookingService;
+    @Autowired
+    private SeatManager seatManager;
+    @Autowired
+    private CatalogCache catalogCache;
+    @Autowired
+    private ShowTimeRepository showTimeRepository;
+    @Autowired
+    private TicketRepository ticketRepository;
+    @Autowired
+    private ShowTimeFixture showTimeFixture;
+
+    private Integer movieId;
+    private Integer showTimeId;
+    private List<Integer> seatIds;
+
+    @BeforeEach
+    void createShowTime() {
+        ShowTimeFixture.Screening screening = showTimeFixture.create("Canceled Screening", SEATS, PRICE);
+        movieId = screening.movieId();
+        showTimeId = screening.showTimeId();
+        seatIds = screening.seatIds();
+    }
+
+    @Test
+    void cancelsEveryActiveTicketWithAFixedNumberOfStatements() {
+        Set<Integer> active = new HashSet<>();
+        for (int i = 0; i < 3; i++) {
+            active.add(bookingService.bookSeat(showTimeId, seatIds.get(i), "Buyer").getTicketID());
+        }
+        bookingService.bookSeats(showTimeId, seatIds.subList(3, 5), "Group").forEach(t -> active.add(t.getTicketID()));
+        Integer refundedEarlier = bookingService.bookSeat(showTimeId, seatIds.get(5), "Early").getTicketID();
+        assertThat(bookingService.cancelTicket(refundedEarlier)).isTrue();
+        assertThat(bookingService.holdSeats(showTimeId, List.of(seatIds.get(6)), "checkout")).isTrue();
+
+        List<TicketRepository.RefundableTicket> refunds = new ArrayList<>();
+        SqlStatementCounter.reset();
+        BookingService.ShowTimeCancellation result = bookingService.cancelShowTime(showTimeId, refunds::add).orElseThrow();
+
+        // Three for the cancellation, one to acknowledge the refunds
+        assertThat(SqlStatementCounter.count()).isEqualTo(4);
+        assertThat(result.canceledTickets()).isEqualTo(active.size());
+        assertThat(result.refundsPending()).isZero();
+        assertThat(result.refundTotal()).isEqualByComparingTo(PRICE.multiply(BigDecimal.valueOf(active.size())));
+        assertThat(refunds).extracting(TicketRepository.RefundableTicket::getTicketID).containsExactlyInAnyOrderElementsOf(active);
+        assertThat(activeTicketCount()).isZero();
+        assertThat(showTimeRepository.findById(showTimeId).orElseThrow().getAvailableSeats()).isZero();
+
+        // No longer sold, loaded or listed; the held seat cannot be turned into a ticket either
+        assertThat(bookingService.bookSeat(showTimeId, seatIds.get(10), "Late")).isNull();
+        assertThat(bookingService.bookHeldSeats(showTimeId, List.of(seatIds.get(6)), "checkout", "Late")).isEmpty();
+        assertThat(seatManager.countAvailableSeats(showTimeId)).isEqualTo(-1);
+        assertThat(catalogCache.getShowTimes(movieId)).noneMatch(entry -> entry.showTimeID().equals(showTimeId));
+
+        // Repeating the cancellation is harmless
+        assertThat(bookingService.cancelShowTime(showTimeId, refunds::add).orElseThrow().canceledTickets()).isZero();
+        assertThat(bookingService.cancelShowTime(-1, refunds::add)).isEmpty();
+    }
+
+    @Test
+    void refundsThatFailToHandOverStayPendingUntilTheCancellationIsRepeated() {
+        List<Integer> ticketIds = bookingService.bookSeats(showTimeId, seatIds.subList(0, 3), "Buyer").stream()
+                .map(Ticket::getTicketID).toList();
+        Integer failing = ticketIds.get(1);
+
+        List<Integer> refunded = new ArrayList<>();
+        BookingService.ShowTimeCancellation result = bookingService.cancelShowTime(showTimeId, ticket -> {
+            if (ticket.getTicketID().equals(failing)) {
+                throw new IllegalStateException("payment provider down");
+            }
+            refunded.add(ticket.getTicketID());
+        }).orElseThrow();
+
+        // The cancellation committed and the other refunds went through
+        assertThat(result.canceledTickets()).isEqualTo(3);
+        assertThat(result.refundsPending()).isEqualTo(1);
+        assertThat(refunded).containsExactly(ticketIds.get(0), ticketIds.get(2));
+        assertThat(activeTicketCount()).isZero();
+
+        BookingService.ShowTimeCancellation repeated = bookingService.cancelShowTime(showTimeId, ticket ->
+                refunded.add(ticket.getTicketID())).orElseThrow();
+        assertThat(repeated.canceledTickets()).isZero();
+        assertThat(repeated.refundsPending()).isZero();
+        assertThat(refunded).containsExactly(ticketIds.get(0), ticketIds.get(2), failing);
+    }
+
+    @Test
+    void bookingsAndCancelsRacingTheCancellationAreRefundedExactlyOnce() throws Exception {
+        Set<Integer> booked = ConcurrentHashMap.newKeySet();
+        Set<Integer> canceledSingly = ConcurrentHashMap.newKeySet();
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicBoolean showTimeCanceled = new AtomicBoolean();
+        CountDownLatch warmedUp = new CountDownLatch(THREADS);
+        // Counted down by each worker once a booking it started after the cancellation has finished
+        CountDownLatch bookedAfterCancel = new CountDownLatch(THREADS);
+
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> workers = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            workers.add(pool.submit(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                boolean counted = false;
+                for (int n = 0; running.get(); n++) {
+                    if (n == 20) {
+                        warmedUp.countDown();
+                    }
+                    boolean startedAfterCancel = showTimeCanceled.get();
+                    // A booking that loses the race with the cancellation is answered with no ticket
+                    Ticket ticket = bookingService.bookSeat(showTimeId, seatIds.get(random.nextInt(SEATS)), "Racer");
+                    if (ticket != null) {
+                        booked.add(ticket.getTicketID());
+                        if (random.nextInt(4) > 0 && bookingService.cancelTicket(ticket.getTicketID())) {
+                            canceledSingly.add(ticket.getTicketID());
+                        }
+                    }
+                    if (startedAfterCancel && !counted) {
+                        counted = true;
+                        bookedAfterCancel.countDown();
+                    }
+                }
+                return null;
+            }));
+        }
+
+        warmedUp.await(30, TimeUnit.SECONDS);
+        List<Integer> refunded = new ArrayList<>();
+        BookingService.ShowTimeCancellation result = bookingService.cancelShowTime(showTimeId,
+                ticket -> refunded.add(ticket.getTicketID())).orElseThrow();
+        showTimeCanceled.set(true);
+        assertThat(bookedAfterCancel.await(30, TimeUnit.SECONDS)).isTrue();
+        running.set(false);
+        for (Future<?> worker : workers) {
+            worker.get(30, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+
+        // Every ticket a buyer got was either canceled singly or refunded by the bulk cancellation, never both,
+        // and refunded once even when a deadlock with a racing cancel made the cancellation retry
+        Set<Integer> expected = new HashSet<>(booked);
+        expected.removeAll(canceledSingly);
+        assertThat(refunded).doesNotHaveDuplicates().containsExactlyInAnyOrderElementsOf(expected);
+        assertThat(result.canceledTickets()).isEqualTo(expected.size());
+        assertThat(activeTicketCount()).isZero();
+        assertThat(showTimeRepository.findById(showTimeId).orElseThrow().getAvailableSeats()).isZero();
+    }
+
+    private long activeTicketCount() {
+        return ticketRepository.findAll().stream()
+                .filter(t -> t.getShowTime().getShowTimeID().equals(showTimeId) && !t.getIsCanceled())
+                .count();
+    }
+}
@@ -0,0 +1,62 @@
+package com.movieticketsystem.movieticketapp.service;
+
+import com.movieticketsystem.movieticketapp.support.ShowTimeFixture;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = {
+        "app.booking.write-behind.enabled=true",
+        // Own database, so the journal replay at start-up never meets another test context's tables
+        "spring.datasource.url=jdbc:h2:mem:writebehind;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000"
+})
+class WriteBehindDeadLetterTest {
+
+    @TempDir
+    static Path journalDir;
+
+    @DynamicPropertySource
+    static void journalPath(DynamicPropertyRegistry registry) {
+        registry.add("app.booking.write-behind.journal-path", () -> journalDir.resolve("booking.journal").toString());
+    }
+
+    @Autowired
+    private BookingRouter bookingRouter;
+    @Autowired
+    private WriteBehindTicketWriter writeBehindWriter;
+    @Autowired
+    private SeatManager seatManager;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private ShowTimeFixture showTimeFixture;
+
+    @Test
+    void parksARejectedBookingAndKeepsItsSeatBooked() {
+        ShowTimeFixture.Screening screening = showTimeFixture.create("Dead Letters", 5, new BigDecimal("100000.0"));
+        Integer showTimeId = screening.showTimeId();
+        Integer seatId = screening.seatIds().get(0);
+        // Canceled behind the application's back, so the journaled booking is acknowledged but SQL rejects it
+        jdbcTemplate.update("UPDATE ShowTimes SET IsCanceled = ? WHERE ShowTimeID = ?", true, showTimeId);
+
+        assertThat(bookingRouter.book(showTimeId, List.of(seatId), "Buyer", "buyer", null)).hasSize(1);
+        assertThat(writeBehindWriter.flush(Duration.ofSeconds(10))).isTrue();
+
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM BookingDeadLetters WHERE ShowTimeID = ? AND SeatID = ?",
+                Integer.class, showTimeId, seatId)).isEqualTo(1);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM Tickets WHERE ShowTimeID = ?",
+                Integer.class, showTimeId)).isZero();
+        assertThat(seatManager.isSeatAvailable(showTimeId, seatId)).isFalse();
+    }
+}
@@ -0,0 +1,51 @@
+package com.movieticketsystem.movieticketapp.support;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs one body on several threads that are released at the same moment, so they contend from the start.
+ */
+public final class Concurrently {
+
+    private Concurrently() {
+    }
+
+    /**
+     * Runs {@code body} on {@code threads} threads and waits for all of them; a failure inside a worker is
+     * rethrown, and a worker still running after {@code timeout} fails the call.
+     */
+    public static void run(int threads, Duration timeout, ThreadBody body) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            futures.add(pool.submit(() -> {
+                start.await();
+                body.run(thread);
+                return null;
+            }));
+        }
+        start.countDown();
+        try {
+            long deadline = System.nanoTime() + timeout.toNanos();
+            for (Future<?> future : futures) {
+                future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @FunctionalInterface
+    public interface ThreadBody {
+        void run(int thread);
+    }
+}
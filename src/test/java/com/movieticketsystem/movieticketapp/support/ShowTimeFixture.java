@@ -0,0 +1,63 @@
+package com.movieticketsystem.movieticketapp.support;
+
+import com.movieticketsystem.movieticketapp.model.Movie;
+import com.movieticketsystem.movieticketapp.model.Seat;
+import com.movieticketsystem.movieticketapp.model.ShowTime;
+import com.movieticketsystem.movieticketapp.repository.MovieRepository;
+import com.movieticketsystem.movieticketapp.repository.SeatRepository;
+import com.movieticketsystem.movieticketapp.repository.ShowTimeRepository;
+import com.movieticketsystem.movieticketapp.service.SeatManager;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates a showtime on sale tomorrow in a theater of its own, so tests never share seats with each other or
+ * with the seeded theaters, whatever order they run in.
+ */
+@Component
+public class ShowTimeFixture {
+
+    private static final int SEATS_PER_ROW = 20;
+    // Static, as every Spring context of the test run shares one in-memory database
+    private static final AtomicInteger NEXT_THEATER = new AtomicInteger(100);
+
+    private final MovieRepository movieRepository;
+    private final ShowTimeRepository showTimeRepository;
+    private final SeatRepository seatRepository;
+    private final SeatManager seatManager;
+
+    public ShowTimeFixture(MovieRepository movieRepository, ShowTimeRepository showTimeRepository,
+                           SeatRepository seatRepository, SeatManager seatManager) {
+        this.movieRepository = movieRepository;
+        this.showTimeRepository = showTimeRepository;
+        this.seatRepository = seatRepository;
+        this.seatManager = seatManager;
+    }
+
+    /**
+     * Saves a movie, a showtime with {@code seatCount} free seats and their seats (rows A, B, ... of 20),
+     * and loads the showtime into SeatManager.
+     */
+    public Screening create(String title, int seatCount, BigDecimal price) {
+        int theater = NEXT_THEATER.getAndIncrement();
+        Movie movie = movieRepository.save(new Movie(title, "Test", 90, price));
+        ShowTime showTime = showTimeRepository.save(
+                new ShowTime(movie, LocalDateTime.now().plusDays(1), theater, seatCount, seatCount));
+        List<Seat> seats = new ArrayList<>(seatCount);
+        for (int i = 0; i < seatCount; i++) {
+            seats.add(new Seat(theater, String.valueOf((char) ('A' + i / SEATS_PER_ROW)), i % SEATS_PER_ROW + 1));
+        }
+        seats = seatRepository.saveAll(seats);
+        seatManager.setTheaterLayout(theater, seats);
+        seatManager.loadShowTime(showTime.getShowTimeID(), theater, new int[0]);
+        return new Screening(movie.getMovieID(), showTime.getShowTimeID(), seats.stream().map(Seat::getSeatID).toList());
+    }
+
+    public record Screening(Integer movieId, Integer showTimeId, List<Integer> seatIds) {
+    }
+}